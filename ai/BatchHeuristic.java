@@ -0,0 +1,16 @@
+package ai;
+
+import java.util.List;
+
+import game.*;
+
+// A Heuristic which can score many positions in one go, faster than calling
+// score() on each of them
+// Minimax uses it for the leaves below a node one move from its search depth:
+// those are all the same position plus one different move each
+public interface BatchHeuristic extends Heuristic {
+    // Sets scores[i] to score() of the position after moves.get(i) is made in
+    // game (for the player to move there), for every i
+    // game is left exactly as it was passed in
+    void scoreChildren(Game game, List<Move> moves, int[] scores);
+}
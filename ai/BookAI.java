@@ -0,0 +1,68 @@
+package ai;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+
+import game.*;
+
+// Plays from an opening book while the game is still in it, and asks another
+// AI once it isn't
+// Books are found by board size in a directory (see OpeningBook.fileName), and
+// each is opened the first time a game of its size asks for a move (or by
+// open) - a size without a book just always uses the other AI, but a book
+// which can't be read is an error, left to the caller to report
+public class BookAI implements AI {
+    private final Path directory;
+    private final AI fallback;
+
+    // board size -> book, or null if there is none
+    private final HashMap<Integer, OpeningBook> books = new HashMap<>();
+    private long bookMoves = 0;
+
+    public BookAI(Path directory, AI fallback) {
+        this.directory = directory;
+        this.fallback = fallback;
+    }
+
+    // Opens the book for a board size now, if there is one, rather than when
+    // the first move is asked for
+    // Throws IOException if it can't be read, or IllegalArgumentException if
+    // it is for another board size (see OpeningBook.open)
+    public synchronized void open(int size) throws IOException {
+        if (books.containsKey(size))
+            return;
+        var path = OpeningBook.fileName(directory, size);
+        books.put(size, Files.exists(path) ? OpeningBook.open(path, size) : null);
+    }
+
+    // the book for a board size, opening it if this is the first time
+    private synchronized OpeningBook book(int size) {
+        try {
+            open(size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't read opening book " + OpeningBook.fileName(directory, size), e);
+        }
+        return books.get(size);
+    }
+
+    // Throws UncheckedIOException or IllegalArgumentException if the book for
+    // game's size can't be opened (as for open)
+    @Override
+    public Move getCurrentPlayerMove(Game game) {
+        var book = book(game.getGrid().getSize());
+        var move = book == null ? null : book.lookup(game);
+        if (move != null) {
+            bookMoves++;
+            return move;
+        }
+        return fallback.getCurrentPlayerMove(game);
+    }
+
+    // how many moves have come from a book
+    public long getBookMoves() {
+        return bookMoves;
+    }
+}
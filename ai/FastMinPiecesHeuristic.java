@@ -0,0 +1,125 @@
+package ai;
+
+import java.util.Arrays;
+
+import game.*;
+
+// Gives exactly the same scores as MinPiecesHeuristic, but much faster
+// Every edge weight in MinPiecesHeuristic's graph is 0 or 1, so instead of
+// Dijkstra's algorithm (a PriorityQueue of new Position objects) this uses a
+// 0-1 BFS: a deque where 0-weight steps go on the front and 1-weight steps on
+// the back, which pops cells in order of distance just like the priority queue
+// The grid is read once into a flat int[] and all the buffers are reused, so
+// scoring a position allocates nothing
+//
+// Heuristics are shared between search threads (see ParallelMinimax), so each
+// thread gets its own buffers
+public class FastMinPiecesHeuristic implements Heuristic {
+    private static class Buffers {
+        int size = -1;
+        byte[] cells; // PieceColour ordinals, row * size + col
+        int[] distance;
+        int[] deque;
+
+        void resize(int size) {
+            if (size == this.size)
+                return;
+            this.size = size;
+            int n = size * size;
+            cells = new byte[n];
+            distance = new int[n];
+            // each cell is queued at most twice (see distance below), and the
+            // power of two size lets the deque wrap around with a mask
+            deque = new int[Integer.highestOneBit(2 * n) << 1];
+        }
+    }
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private static final int NONE = PieceColour.NONE.ordinal();
+
+    @Override
+    public int score(Game game) {
+        var grid = game.getGrid();
+        int size = grid.getSize();
+        var buffers = BUFFERS.get();
+        buffers.resize(size);
+
+        grid.copyCells(buffers.cells);
+
+        int player = game.currentPlayer().ordinal();
+        return -Math.min(distance(buffers, player, true), distance(buffers, player, false));
+    }
+
+    // The number of pieces player needs to join top to bottom (vertical) or
+    // left to right, with the same quirks as MinPiecesHeuristic.dijkstra:
+    //   - every cell of the start edge is a source, costing 0 if it is
+    //     player's and 1 otherwise (even if it is the opponent's)
+    //   - stepping out of a cell costs 0 if it is player's and 1 if it is empty;
+    //     there is no way out of an opponent's cell
+    //   - the search ends at the first cell reached on the far edge, whatever
+    //     its colour, and gives size * size if there is none
+    private static int distance(Buffers buffers, int player, boolean vertical) {
+        int size = buffers.size;
+        byte[] cells = buffers.cells;
+        int[] distance = buffers.distance, deque = buffers.deque;
+        int mask = deque.length - 1, head = 0, tail = 0;
+        Arrays.fill(distance, Integer.MAX_VALUE);
+
+        // cells at distance 0 go on the front so the deque stays sorted
+        for (int i = 0; i < size; i++) {
+            int cell = vertical ? i : i * size;
+            if (cells[cell] == player) {
+                distance[cell] = 0;
+                deque[head = (head - 1) & mask] = cell;
+            } else {
+                distance[cell] = 1;
+                deque[tail] = cell;
+                tail = (tail + 1) & mask;
+            }
+        }
+
+        // The deque only ever holds two distances, d and d + 1, in order, so a
+        // cell's distance is final the first time it is popped, and can drop
+        // (from d + 1 to d) at most once after it is first set
+        while (head != tail) {
+            int cell = deque[head];
+            head = (head + 1) & mask;
+            int row = cell / size, col = cell % size;
+            if ((vertical ? row : col) == size - 1)
+                return distance[cell];
+
+            int colour = cells[cell];
+            if (colour != player && colour != NONE)
+                continue;
+            int next = distance[cell] + (colour == player ? 0 : 1);
+
+            for (int d = 0; d < 4; d++) {
+                int neighbour;
+                if (d == 0) {
+                    if (row == 0) continue;
+                    neighbour = cell - size;
+                } else if (d == 1) {
+                    if (row == size - 1) continue;
+                    neighbour = cell + size;
+                } else if (d == 2) {
+                    if (col == 0) continue;
+                    neighbour = cell - 1;
+                } else {
+                    if (col == size - 1) continue;
+                    neighbour = cell + 1;
+                }
+                if (next < distance[neighbour]) {
+                    distance[neighbour] = next;
+                    if (next == distance[cell])
+                        deque[head = (head - 1) & mask] = neighbour;
+                    else {
+                        deque[tail] = neighbour;
+                        tail = (tail + 1) & mask;
+                    }
+                }
+            }
+        }
+        return size * size;
+    }
+}
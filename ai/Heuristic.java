@@ -7,4 +7,13 @@ public interface Heuristic {
     // Higher scores are better
     // Used by the Minimax AI to estimate the quality of a game state
     int score(Game game);
+
+    // Whether score gives the same answer for every rotation and reflection of
+    // a position (see Game.canonicalKey)
+    // Only then can a search share results between symmetric positions, and
+    // skip moves leading to a position symmetric to another move's - so this
+    // must only be true if it really holds for every position
+    default boolean isSymmetric() {
+        return false;
+    }
 }
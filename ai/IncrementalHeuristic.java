@@ -0,0 +1,19 @@
+package ai;
+
+import game.*;
+
+// A Heuristic which can keep its own state up to date as moves are made and
+// undone, instead of working everything out again for every score() call
+// Minimax tells it about every move it plays and retracts during a search
+//
+// The notifications are only a hint: score(game) must still give the right
+// answer for any game it is passed (e.g. by rebuilding its state when it
+// doesn't match game.hashKey()), so an implementation can also be used as a
+// plain Heuristic
+public interface IncrementalHeuristic extends Heuristic {
+    // Called just after game.makeMove(move)
+    void moveMade(Game game, Move move);
+
+    // Called just after game.undoMove() has taken back move
+    void moveUndone(Game game, Move move);
+}
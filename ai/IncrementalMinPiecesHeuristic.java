@@ -0,0 +1,420 @@
+package ai;
+
+import java.util.Arrays;
+
+import game.*;
+
+// Gives exactly the same scores as MinPiecesHeuristic, but keeps the distance
+// fields it is computed from up to date as moves are made and undone, rather
+// than searching the whole grid again at every leaf
+//
+// For each colour there are two fields: the distance (in MinPiecesHeuristic's
+// terms - see FastMinPiecesHeuristic.distance) of every cell from the top edge,
+// and from the left edge. A score is then just the smallest distance along the
+// bottom row and right column. When a cell changes colour, stepping out of it
+// gets cheaper or dearer for each colour:
+//   - if cheaper, distances can only shrink - they are relaxed outwards from it
+//   - if dearer (e.g. it became a wall), distances can only grow - the cells
+//     whose shortest path went through it are found, reset, and filled in
+//     again from their unaffected neighbours
+// Either way only the cells whose distance might change are touched, which is
+// usually a region around the move rather than the whole grid. Changes made
+// by moveMade are logged on a trail, so a matching moveUndone just puts the old
+// distances back (and an undo past the trail is worked out like a move)
+//
+// State is kept per thread. If a score() call is for a position the state
+// doesn't match (e.g. the first call of a search, or a search on another copy
+// of the game), the fields are rebuilt from scratch
+public class IncrementalMinPiecesHeuristic implements IncrementalHeuristic {
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+    private static final int NONE = PieceColour.NONE.ordinal();
+
+    private static final ThreadLocal<State> STATES = ThreadLocal.withInitial(State::new);
+
+    private static class State {
+        int size = -1, n;
+        boolean valid = false;
+        long key; // hashKey() of the position the fields are for
+
+        int[] cells; // PieceColour ordinals
+        // [2 * (colour ordinal - 1) + (0 from top, 1 from left)][cell]
+        int[][] distance = new int[4][];
+
+        // (field * n + cell, old distance) for every change logged since the last
+        // rebuild, and the trail length and key before each move on it
+        int[] trailSlot = new int[256], trailOld = new int[256];
+        int trailSize = 0;
+        int[] moveMark = new int[64];
+        long[] moveKey = new long[64];
+        int moves = 0;
+
+        // bucket queue (bucket = distance) of cells, as linked lists, with the
+        // range of buckets which might be non-empty
+        int[] bucketHead, entryCell, entryNext;
+        int entries, lowest, highest;
+
+        // per-cell marks for raise (see there), and the cells it resets
+        int[] mark, list;
+        int stamp = 0;
+
+        void resize(int size) {
+            if (size == this.size)
+                return;
+            this.size = size;
+            n = size * size;
+            cells = new int[n];
+            for (int f = 0; f < distance.length; f++)
+                distance[f] = new int[n];
+            // distances never exceed n, and each cell is queued at most once as a
+            // seed or candidate, plus at most once per neighbour relaxing it
+            bucketHead = new int[n + 2];
+            Arrays.fill(bucketHead, -1);
+            entryCell = new int[6 * n + 8];
+            entryNext = new int[6 * n + 8];
+            mark = new int[n];
+            list = new int[n];
+            stamp = 0;
+        }
+    }
+
+    @Override
+    public int score(Game game) {
+        var state = STATES.get();
+        if (!state.valid || state.key != game.hashKey())
+            rebuild(state, game);
+
+        int size = state.size;
+        int colour = game.currentPlayer().ordinal();
+        int[] fromTop = state.distance[2 * (colour - 1)], fromLeft = state.distance[2 * (colour - 1) + 1];
+        int best = INFINITY;
+        for (int i = 0; i < size; i++)
+            best = Math.min(best, Math.min(fromTop[(size - 1) * size + i], fromLeft[i * size + size - 1]));
+        return -(best >= INFINITY ? size * size : best);
+    }
+
+    @Override
+    public void moveMade(Game game, Move move) {
+        var state = STATES.get();
+        int cell = cellOf(state, move);
+        // the piece just placed belongs to the player who is no longer to move
+        var mover = game.currentPlayer() == PieceColour.WHITE ? PieceColour.BLACK : PieceColour.WHITE;
+        if (cell < 0 || state.cells[cell] != NONE || otherKey(state, game, cell, mover) != state.key) {
+            state.valid = false; // we've missed a move somewhere - rebuild at the next score
+            return;
+        }
+
+        if (state.moves == state.moveMark.length) {
+            state.moveMark = Arrays.copyOf(state.moveMark, 2 * state.moves);
+            state.moveKey = Arrays.copyOf(state.moveKey, 2 * state.moves);
+        }
+        state.moveMark[state.moves] = state.trailSize;
+        state.moveKey[state.moves] = state.key;
+        state.moves++;
+
+        change(state, cell, mover.ordinal(), true);
+        state.key = game.hashKey();
+    }
+
+    @Override
+    public void moveUndone(Game game, Move move) {
+        var state = STATES.get();
+        int cell = cellOf(state, move);
+        if (cell < 0)
+            return;
+
+        if (state.moves > 0 && state.moveKey[state.moves - 1] == game.hashKey()) {
+            // the usual case - undoing a move we were told about
+            state.moves--;
+            int mark = state.moveMark[state.moves];
+            while (state.trailSize > mark) {
+                state.trailSize--;
+                int slot = state.trailSlot[state.trailSize];
+                state.distance[slot / state.n][slot % state.n] = state.trailOld[state.trailSize];
+            }
+            state.cells[cell] = NONE;
+            state.key = game.hashKey();
+            return;
+        }
+
+        // undoing a move made before the fields were built (e.g. climbing back up
+        // a search from the leaf they were built at) - remove the piece by hand
+        var mover = game.currentPlayer();
+        if (state.moves > 0 || state.cells[cell] != mover.ordinal() || otherKey(state, game, cell, mover) != state.key) {
+            state.valid = false;
+            return;
+        }
+        state.trailSize = 0; // there are no moves left to undo with it
+        change(state, cell, NONE, false);
+        state.key = game.hashKey();
+    }
+
+    // row * size + col, or -1 if the state is invalid or for another size of grid
+    private static int cellOf(State state, Move move) {
+        if (!state.valid || move.getRow() >= state.size || move.getCol() >= state.size) {
+            state.valid = false;
+            return -1;
+        }
+        return move.getRow() * state.size + move.getCol();
+    }
+
+    // key of game's position with mover's piece at cell added (or removed) and
+    // the other player to move
+    private static long otherKey(State state, Game game, int cell, PieceColour mover) {
+        return game.hashKey() ^ Zobrist.key(state.size, cell, mover) ^ Zobrist.BLACK_TO_MOVE;
+    }
+
+    // works out every field from scratch for game's position
+    private static void rebuild(State state, Game game) {
+        var grid = game.getGrid();
+        int size = grid.getSize();
+        state.resize(size);
+        for (int row = 0; row < size; row++)
+            for (int col = 0; col < size; col++)
+                state.cells[row * size + col] = grid.getPiece(row, col).ordinal();
+
+        state.trailSize = 0;
+        state.moves = 0;
+        for (int colour = 1; colour <= 2; colour++)
+            for (int direction = 0; direction < 2; direction++) {
+                int field = 2 * (colour - 1) + direction;
+                Arrays.fill(state.distance[field], INFINITY);
+                startQueue(state);
+                for (int i = 0; i < size; i++) {
+                    int cell = direction == 0 ? i : i * size;
+                    state.distance[field][cell] = startCost(state.cells[cell], colour);
+                    push(state, cell, state.distance[field][cell]);
+                }
+                relax(state, field, colour, false);
+            }
+
+        state.key = game.hashKey();
+        state.valid = true;
+    }
+
+    // sets cell to colour, and updates the four fields to match
+    private static void change(State state, int cell, int colour, boolean logged) {
+        int old = state.cells[cell];
+        state.cells[cell] = colour;
+        for (int fieldColour = 1; fieldColour <= 2; fieldColour++) {
+            // a cell's start and exit costs always rise or fall together
+            int before = exitCost(old, fieldColour), after = exitCost(colour, fieldColour);
+            for (int direction = 0; direction < 2; direction++) {
+                int field = 2 * (fieldColour - 1) + direction;
+                if (after < before)
+                    lower(state, field, fieldColour, direction, cell, logged);
+                else if (after > before)
+                    raise(state, field, fieldColour, direction, cell, before, logged);
+            }
+        }
+    }
+
+    private static boolean isStart(int size, int direction, int cell) {
+        return direction == 0 ? cell < size : cell % size == 0;
+    }
+
+    // distance of a start edge cell from the edge, for colour
+    private static int startCost(int cellColour, int colour) {
+        return cellColour == colour ? 0 : 1;
+    }
+
+    // cost of stepping out of a cell for colour (INFINITY if it is a wall)
+    private static int exitCost(int cellColour, int colour) {
+        return cellColour == colour ? 0 : cellColour == NONE ? 1 : INFINITY;
+    }
+
+    private static void set(State state, int field, int cell, int value, boolean logged) {
+        if (logged) {
+            if (state.trailSize == state.trailSlot.length) {
+                state.trailSlot = Arrays.copyOf(state.trailSlot, 2 * state.trailSize);
+                state.trailOld = Arrays.copyOf(state.trailOld, 2 * state.trailSize);
+            }
+            state.trailSlot[state.trailSize] = field * state.n + cell;
+            state.trailOld[state.trailSize] = state.distance[field][cell];
+            state.trailSize++;
+        }
+        state.distance[field][cell] = value;
+    }
+
+    // cell got cheaper for colour: its own distance can drop if it is on the
+    // start edge, and its neighbours may now be reached more cheaply through it
+    private static void lower(State state, int field, int colour, int direction, int cell, boolean logged) {
+        int[] distance = state.distance[field];
+        startQueue(state);
+        int start = startCost(state.cells[cell], colour);
+        if (isStart(state.size, direction, cell) && start < distance[cell])
+            set(state, field, cell, start, logged);
+        if (distance[cell] < INFINITY)
+            push(state, cell, distance[cell]);
+        relax(state, field, colour, logged);
+    }
+
+    // cell got dearer for colour (stepping out of it used to cost oldExit): the
+    // cells whose distance depended on it are found and reset, then refilled
+    // from the unaffected cells around them
+    private static void raise(State state, int field, int colour, int direction, int cell, int oldExit,
+            boolean logged) {
+        int[] distance = state.distance[field], cells = state.cells;
+        int size = state.size;
+        if (distance[cell] >= INFINITY)
+            return; // nothing came through it
+
+        // marks for this call: a cell is pending while queued to be checked, then
+        // either kept (it still has a shortest path) or reset
+        if (state.stamp > Integer.MAX_VALUE - 4) {
+            Arrays.fill(state.mark, 0);
+            state.stamp = 0;
+        }
+        int pending = state.stamp + 1, kept = pending + 1, reset = pending + 2;
+        state.stamp = reset;
+        int[] mark = state.mark, list = state.list;
+        int count = 0;
+
+        // Only the cell itself, and cells one step on from it or from a reset
+        // cell along a step with no slack, can have lost their shortest path.
+        // They are checked in order of distance, so that every possible support
+        // has been checked first - apart from cells at the same distance, which
+        // don't count unless already kept (at worst a few more cells are reset
+        // than needed)
+        startQueue(state);
+        for (int d = 0; d < 4; d++) {
+            int next = neighbour(size, cell, d);
+            if (next >= 0 && distance[next] == distance[cell] + oldExit) {
+                mark[next] = pending;
+                push(state, next, distance[next]);
+            }
+        }
+        mark[cell] = pending;
+        push(state, cell, distance[cell]);
+
+        for (int current = pop(state); current >= 0; current = pop(state)) {
+            if (isSupported(state, distance, colour, direction, current, kept)) {
+                mark[current] = kept;
+                continue;
+            }
+            mark[current] = reset;
+            list[count++] = current;
+            int cost = exitCost(cells[current], colour);
+            if (cost >= INFINITY)
+                continue;
+            for (int d = 0; d < 4; d++) {
+                int next = neighbour(size, current, d);
+                if (next >= 0 && distance[next] == distance[current] + cost && mark[next] < pending) {
+                    mark[next] = pending;
+                    push(state, next, distance[next]);
+                }
+            }
+        }
+
+        for (int i = 0; i < count; i++)
+            set(state, field, list[i], INFINITY, logged);
+
+        // each reset cell starts from its best unaffected neighbour (or the edge)
+        startQueue(state);
+        for (int i = 0; i < count; i++) {
+            int current = list[i];
+            int best = isStart(size, direction, current) ? startCost(cells[current], colour) : INFINITY;
+            for (int d = 0; d < 4; d++) {
+                int next = neighbour(size, current, d);
+                if (next < 0 || mark[next] == reset)
+                    continue;
+                int cost = exitCost(cells[next], colour);
+                if (cost < INFINITY && distance[next] < INFINITY)
+                    best = Math.min(best, distance[next] + cost);
+            }
+            if (best < INFINITY) {
+                set(state, field, current, best, logged);
+                push(state, current, best);
+            }
+        }
+        relax(state, field, colour, logged);
+    }
+
+    // true if current's distance is still achieved from the start edge, or
+    // through a neighbour which is known to be unaffected
+    private static boolean isSupported(State state, int[] distance, int colour, int direction, int current, int kept) {
+        int[] cells = state.cells, mark = state.mark;
+        int size = state.size;
+        if (isStart(size, direction, current) && distance[current] == startCost(cells[current], colour))
+            return true;
+        for (int d = 0; d < 4; d++) {
+            int next = neighbour(size, current, d);
+            if (next < 0)
+                continue;
+            int cost = exitCost(cells[next], colour);
+            // cells unmarked by this call (below pending) are unaffected, except
+            // that one at the same distance may not have been reached yet
+            boolean known = mark[next] == kept || (mark[next] < kept - 1 && cost > 0);
+            if (known && cost < INFINITY && distance[next] + cost == distance[current])
+                return true;
+        }
+        return false;
+    }
+
+    // neighbour of cell in direction d (up, down, left, right), or -1 off the grid
+    private static int neighbour(int size, int cell, int d) {
+        switch (d) {
+            case 0:
+                return cell >= size ? cell - size : -1;
+            case 1:
+                return cell < size * (size - 1) ? cell + size : -1;
+            case 2:
+                return cell % size != 0 ? cell - 1 : -1;
+            default:
+                return cell % size != size - 1 ? cell + 1 : -1;
+        }
+    }
+
+    // the bucket heads are all -1 between uses (every queue is run until it is
+    // empty), so starting a queue only resets its bounds
+    private static void startQueue(State state) {
+        state.entries = 0;
+        state.lowest = Integer.MAX_VALUE;
+        state.highest = -1;
+    }
+
+    private static void push(State state, int cell, int distance) {
+        int entry = state.entries++;
+        state.entryCell[entry] = cell;
+        state.entryNext[entry] = state.bucketHead[distance];
+        state.bucketHead[distance] = entry;
+        state.lowest = Math.min(state.lowest, distance);
+        state.highest = Math.max(state.highest, distance);
+    }
+
+    // removes a cell from the lowest non-empty bucket, or returns -1 if there
+    // are none (state.lowest is then that cell's bucket)
+    private static int pop(State state) {
+        for (; state.lowest <= state.highest; state.lowest++) {
+            int entry = state.bucketHead[state.lowest];
+            if (entry >= 0) {
+                state.bucketHead[state.lowest] = state.entryNext[entry];
+                return state.entryCell[entry];
+            }
+        }
+        return -1;
+    }
+
+    // Dijkstra's algorithm over the queued cells, lowering distances in field
+    // (costs are 0 or 1, so a bucket per distance is a priority queue)
+    private static void relax(State state, int field, int colour, boolean logged) {
+        int[] distance = state.distance[field], cells = state.cells;
+        int size = state.size;
+        for (int cell = pop(state); cell >= 0; cell = pop(state)) {
+            int bucket = state.lowest;
+            if (distance[cell] != bucket)
+                continue; // lowered again since it was queued
+
+            int cost = exitCost(cells[cell], colour);
+            if (cost >= INFINITY)
+                continue;
+            int next = bucket + cost;
+            for (int d = 0; d < 4; d++) {
+                int neighbour = neighbour(size, cell, d);
+                if (neighbour >= 0 && next < distance[neighbour]) {
+                    set(state, field, neighbour, next, logged);
+                    push(state, neighbour, next);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package ai;
+
+// An AI which can report what it did while choosing its last move
+public interface InstrumentedAI extends AI {
+    // Statistics for the last call to getCurrentPlayerMove
+    // (SearchStats.EMPTY if it hasn't been called yet)
+    SearchStats getLastSearchStats();
+}
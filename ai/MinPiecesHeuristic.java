@@ -21,19 +21,21 @@ public class MinPiecesHeuristic implements Heuristic {
     // Locations with the same colour as ours have weight 0
     // Empty locations have weight 1
     // Locations with the other colour are impassable
-    private int dijkstra(Grid grid, PieceColour piece, int startr, int startc, int endr, int endc) {
+    // (cells is the grid as PieceColour ordinals - see Grid.copyCells)
+    private int dijkstra(byte[] cells, int size, PieceColour piece, int startr, int startc, int endr, int endc) {
+        int colour = piece.ordinal(), none = PieceColour.NONE.ordinal();
         PriorityQueue<Position> queue = new PriorityQueue<>(new Comparator<Position>() {
             @Override
             public int compare(Position a, Position b) {
                 return a.distance - b.distance;
             }
         });
-        boolean[][] visited = new boolean[grid.getSize()][grid.getSize()];
-        for (int i = 0; i < grid.getSize(); ++i) {
+        boolean[][] visited = new boolean[size][size];
+        for (int i = 0; i < size; ++i) {
             if (startr != -1)
-                queue.offer(new Position(startr, i, grid.getPiece(startr, i) == piece ? 0 : 1));
+                queue.offer(new Position(startr, i, cells[startr * size + i] == colour ? 0 : 1));
             if (startc != -1)
-                queue.offer(new Position(i, startc, grid.getPiece(i, startc) == piece ? 0 : 1));
+                queue.offer(new Position(i, startc, cells[i * size + startc] == colour ? 0 : 1));
         }
         int[][] dirs = { { -1, 0 }, { 1, 0 }, { 0, -1 }, { 0, 1 } };
         while (!queue.isEmpty()) {
@@ -46,26 +48,30 @@ public class MinPiecesHeuristic implements Heuristic {
             for (int d = 0; d < dirs.length; d++) {
                 int row = pos.row + dirs[d][0];
                 int col = pos.col + dirs[d][1];
-                if (row < 0 || row >= grid.getSize() || col < 0 || col >= grid.getSize())
+                if (row < 0 || row >= size || col < 0 || col >= size)
                     continue;
                 if (visited[row][col])
                     continue;
-                if (grid.getPiece(pos.row, pos.col) == piece) {
+                int current = cells[pos.row * size + pos.col];
+                if (current == colour) {
                     queue.offer(new Position(row, col, pos.distance));
-                } else if (grid.getPiece(pos.row, pos.col) == PieceColour.NONE) {
+                } else if (current == none) {
                     queue.offer(new Position(row, col, pos.distance + 1));
                 }
             }
         }
-        return grid.getSize() * grid.getSize();
+        return size * size;
     }
 
     @Override
     public int score(Game game) {
         var grid = game.getGrid();
+        int size = grid.getSize();
+        var cells = new byte[size * size];
+        grid.copyCells(cells);
         var player = game.currentPlayer();
-        return -Math.min(dijkstra(grid, player, 0, -1, grid.getSize() - 1, -1),
-                dijkstra(grid, player, -1, 0, -1, grid.getSize() - 1));
+        return -Math.min(dijkstra(cells, size, player, 0, -1, size - 1, -1),
+                dijkstra(cells, size, player, -1, 0, -1, size - 1));
     }
 
 }
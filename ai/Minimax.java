@@ -1,84 +1,548 @@
 package ai;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Random;
+import java.util.Arrays;
 
 import game.*;
 
 // An implementation of the Minimax algorithm
-public class Minimax implements AI {
+// (in its negamax form: every score is from the point of view of the player
+// to move, so a child's score is negated for its parent)
+public class Minimax implements InstrumentedAI {
+    // scores for a won/lost game - any heuristic score lies strictly between
+    static final long WIN = Integer.MAX_VALUE, LOSS = -WIN;
+
+    // default transposition table size: 2^18 entries (4MB)
+    static final int DEFAULT_TABLE_SIZE_LOG2 = 18;
+
+    // remaining depth at which moves to symmetric positions are pruned
+    // (it costs a makeMove/undoMove per move, so isn't worth it near the leaves)
+    static final int SYMMETRY_MIN_DEPTH = 3;
+
+    // remaining depth at which results are also read from/written to the
+    // position cache (only the expensive searches are worth the disk space)
+    private static final int CACHE_MIN_DEPTH = 3;
+
+    // how often (in nodes) the clock is checked when searching to a time budget
+    private static final int CLOCK_CHECK_INTERVAL = 1024;
+
+    // one heuristic call in this many is timed (and the time scaled up), as
+    // reading the clock would cost a noticeable fraction of a cheap heuristic
+    // (a power of 2)
+    private static final int HEURISTIC_TIMING_SAMPLE = 16;
+
+    // selective search: moves after the first LMR_MIN_INDEX at nodes with at least
+    // LMR_MIN_DEPTH plies left are searched 1 ply shallower (2 plies after
+    // LMR_DEEP_INDEX moves, with at least LMR_DEEP_DEPTH plies left), and the
+    // root is searched in a window this wide either side of the previous
+    // iteration's score
+    // (tuned on seeded 7x7 positions with MinPiecesHeuristic: depth 7 takes
+    // about half the time of a plain depth 5 search - with LMR_DEEP_DEPTH at 5
+    // it took longer than depth 5, and a window of 1 needed many re-searches)
+    private static final int LMR_MIN_DEPTH = 3, LMR_MIN_INDEX = 2, LMR_DEEP_INDEX = 6, LMR_DEEP_DEPTH = 4;
+    private static final long ASPIRATION_WINDOW = 2;
+
     private int maxDepth;
     private Heuristic heuristic;
+    // whether positions are keyed (and moves pruned) by symmetry - only if the
+    // heuristic is symmetric (see key)
+    private boolean symmetric;
+    private TranspositionTable table;
+    private PositionCache cache = null;
+    private MoveOrderer orderer = new MoveOrderer(System.nanoTime());
+
+    // depth of the current iteration, so that nodes know their ply
+    private int rootDepth;
+    // nodes visited by the last call to getCurrentPlayerMove, and the other
+    // counters for SearchStats
+    private long nodes;
+    private long leaves, heuristicCalls, heuristicNanos, expandedNodes, betaCutoffs, firstMoveCutoffs;
+    private int depthReached;
+    private SearchStats lastStats = SearchStats.EMPTY;
+
+    // principal variation search, aspiration windows and late move reductions
+    private boolean selective = false;
+
+    // time budget per move, or 0 to always search to maxDepth
+    private long budgetNanos = 0;
+    private long deadline;
+    private int nodesUntilClockCheck;
+
+    // score of the most recent completed searchRoot
+    private long lastScore;
+
+    // heuristic scores of the leaves below the current depth 1 node, when the
+    // heuristic is a BatchHeuristic (only one such node is open at a time)
+    private int[] leafScores = new int[0];
+    private ArrayList<Move> leafMoves = new ArrayList<>();
+
+    // move lists, one per ply (moves are kept as row * size + col, and the lists
+    // reused from node to node, so that searching allocates nothing per node)
+    private IntMoveList[] plyMoves = new IntMoveList[0];
+    private long[] seenKeys = new long[0];
+
+    // thrown to unwind out of an iteration which has run out of time
+    // (preallocated and stackless, as it is control flow rather than an error)
+    private static class SearchTimeout extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        SearchTimeout() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final SearchTimeout TIMEOUT = new SearchTimeout();
 
 
     // maxDepth is the number of moves ahead to look
     // heuristic is used to estimate the quality of a non-terminal game state
+    // (a BatchHeuristic scores the leaves below each node together, in batches)
     public Minimax(int maxDepth, Heuristic heuristic) {
+        this(maxDepth, heuristic, new TranspositionTable(DEFAULT_TABLE_SIZE_LOG2));
+    }
+
+    // as above, but with a given transposition table (to choose its size, or to
+    // share it between several Minimax instances)
+    // the table is kept between moves, as later searches often revisit positions
+    public Minimax(int maxDepth, Heuristic heuristic, TranspositionTable table) {
         if (maxDepth < 1) throw new IllegalArgumentException("maxDepth must be at least 1");
         this.maxDepth = maxDepth;
         this.heuristic = heuristic;
+        this.symmetric = heuristic.isSymmetric();
+        this.table = table;
+    }
+
+    // A Minimax which searches for a fixed amount of time per move, rather than to
+    // a fixed depth: it searches 1 move ahead, then 2, then 3, ... and plays the
+    // best move from the deepest search that finished before time ran out
+    // (the unfinished search is abandoned as soon as the budget is used up)
+    public static Minimax withTimeBudget(long millisPerMove, Heuristic heuristic) {
+        return withTimeBudget(millisPerMove, heuristic, new TranspositionTable(DEFAULT_TABLE_SIZE_LOG2));
+    }
+
+    // as above, but with a given transposition table
+    public static Minimax withTimeBudget(long millisPerMove, Heuristic heuristic, TranspositionTable table) {
+        if (millisPerMove < 1) throw new IllegalArgumentException("millisPerMove must be at least 1");
+        var minimax = new Minimax(Integer.MAX_VALUE, heuristic, table);
+        minimax.budgetNanos = millisPerMove * 1_000_000;
+        return minimax;
+    }
+
+    // Also look up (and save) search results in a persistent position cache, so
+    // they can be reused by later games - pass null to stop using one
+    // The cache must be for the same board size and heuristic as this AI
+    public void setPositionCache(PositionCache cache) {
+        this.cache = cache;
+    }
+
+    // Use a different move orderer - e.g. one with a fixed seed, so that searches
+    // are reproducible (by default, tied moves are shuffled with a random seed)
+    public void setMoveOrderer(MoveOrderer orderer) {
+        this.orderer = orderer;
+    }
+
+    // Turn selective search on or off (it is off by default)
+    // Selective search assumes the move ordering is good: after the first move
+    // at each node, the rest are only searched to prove they are no better (with
+    // a null window, and for moves late in the order, at reduced depth), and are
+    // re-searched properly only if that fails. The root is searched by
+    // iterative deepening, in a narrow window around the previous score.
+    // This reaches greater depths in the same time, at the risk of missing a
+    // good move which the reduced search undervalued
+    public void setSelectiveSearch(boolean selective) {
+        this.selective = selective;
+    }
+
+    // Number of positions visited while choosing the last move
+    public long getNodesSearched() {
+        return nodes;
+    }
+
+    @Override
+    public SearchStats getLastSearchStats() {
+        return lastStats;
     }
 
-    // Returns the list of moves in a random order
-    private ArrayList<Move> getMoves(Game game) {
-        var moves = new ArrayList<>(game.getMoves());
-        Collections.shuffle(moves, new Random());
+    // looks a position up in the transposition table, then the position cache
+    private long probe(long key, int depth) {
+        long entry = table.probe(key);
+        if (entry == TranspositionTable.NO_ENTRY && cache != null && depth >= CACHE_MIN_DEPTH) {
+            entry = cache.probe(key);
+            if (entry != TranspositionTable.NO_ENTRY)
+                table.store(key, TranspositionTable.depth(entry), TranspositionTable.bound(entry),
+                        TranspositionTable.score(entry), TranspositionTable.move(entry));
+        }
+        return entry;
+    }
+
+    private void store(long key, int depth, int bound, long score, int move) {
+        table.store(key, depth, bound, score, move);
+        if (cache != null && depth >= CACHE_MIN_DEPTH)
+            cache.store(key, depth, bound, score, move);
+    }
+
+    // Returns the moves of game best-first (see MoveOrderer)
+    // If removeSymmetric is set, moves leading to a position symmetric to an
+    // earlier move's are dropped, since they must have the same score
+    // The list returned belongs to this node's ply, and is overwritten by the
+    // next node searched at the same ply
+    private IntMoveList getMoves(Game game, int depth, int tableMove, boolean removeSymmetric) {
+        int ply = rootDepth - depth;
+        if (ply >= plyMoves.length) {
+            plyMoves = Arrays.copyOf(plyMoves, ply + 1);
+            for (int i = 0; i < plyMoves.length; i++)
+                if (plyMoves[i] == null)
+                    plyMoves[i] = new IntMoveList();
+        }
+        var moves = plyMoves[ply];
+        orderer.order(game, ply, depth, tableMove, moves);
+        if (removeSymmetric)
+            removeSymmetric(game, moves);
         return moves;
     }
 
+    // as below, removing the moves from the list in place
+    private void removeSymmetric(Game game, IntMoveList moves) {
+        if (seenKeys.length < moves.size())
+            seenKeys = new long[moves.size()];
+        int seenCount = 0, kept = 0;
+        for (int m = 0; m < moves.size(); m++) {
+            int move = moves.get(m);
+            game.makeMove(move);
+            long key = game.canonicalKey();
+            game.undoMove();
+
+            boolean duplicate = false;
+            for (int i = 0; i < seenCount && !duplicate; i++)
+                duplicate = seenKeys[i] == key;
+            if (!duplicate) {
+                seenKeys[seenCount++] = key;
+                moves.set(kept++, move);
+            }
+        }
+        moves.truncate(kept);
+    }
+
+    // keeps only the first of each group of moves leading to symmetric positions
+    // (package-private static, as ParallelMinimax does the same)
+    static ArrayList<Move> removeSymmetric(Game game, ArrayList<Move> moves) {
+        // at most one key per move, so a linear scan of seen keys is fine
+        var seen = new long[moves.size()];
+        int seenCount = 0;
+        var unique = new ArrayList<Move>(moves.size());
+        for (Move move : moves) {
+            game.makeMove(move);
+            long key = game.canonicalKey();
+            game.undoMove();
+
+            boolean duplicate = false;
+            for (int i = 0; i < seenCount && !duplicate; i++)
+                duplicate = seen[i] == key;
+            if (!duplicate) {
+                seen[seenCount++] = key;
+                unique.add(move);
+            }
+        }
+        return unique;
+    }
+
+    // The transposition table key of a position: with a symmetric heuristic,
+    // the canonical key shared by all its rotations and reflections, and
+    // otherwise just its own hashKey() - symmetric positions can score
+    // differently, so sharing entries between them would give wrong scores
+    static long key(Game game, boolean symmetric) {
+        return symmetric ? game.canonicalKey() : game.hashKey();
+    }
+
+    // entries keyed by the canonical key are stored for the canonical
+    // (symmetry reduced) position, so best moves have to be mapped to and from it
+    static int toCanonical(Game game, int size, int move, boolean symmetric) {
+        return move < 0 || !symmetric ? move : Symmetry.apply(game.canonicalSymmetry(), size, move);
+    }
+
+    static int fromCanonical(Game game, int size, int move, boolean symmetric) {
+        return move < 0 || !symmetric ? move : Symmetry.apply(Symmetry.inverse(game.canonicalSymmetry()), size, move);
+    }
+
+    // makeMove/undoMove, also telling the heuristic if it is an IncrementalHeuristic
+    // (package-private static, as ParallelMinimax does the same)
+    static void play(Game game, Move move, Heuristic heuristic) {
+        game.makeMove(move);
+        if (heuristic instanceof IncrementalHeuristic)
+            ((IncrementalHeuristic) heuristic).moveMade(game, move);
+    }
+
+    static void retract(Game game, Move move, Heuristic heuristic) {
+        game.undoMove();
+        if (heuristic instanceof IncrementalHeuristic)
+            ((IncrementalHeuristic) heuristic).moveUndone(game, move);
+    }
+
+    // Score of a finished game, or the heuristic's estimate of an unfinished one,
+    // for the current player
+    static long evaluate(Game game, Heuristic heuristic) {
+        var winner = game.winner();
+        if (winner == game.currentPlayer()) return WIN;
+        else if (winner != PieceColour.NONE) return LOSS;
+        return heuristic.score(game);
+    }
+
     // Returns the score of the best move for the current player
-    // Uses minimax with alpha-beta pruning
-    private long minimax(Game game, int depth, long alpha, long beta, PieceColour player) {
-        if (game.isOver() || depth == 0) {
-            if (game.winner() == player) return Integer.MAX_VALUE;
-            else if (game.winner() != PieceColour.NONE) return Integer.MIN_VALUE;
-            return heuristic.score(game);
+    // Uses minimax with alpha-beta pruning, and the transposition table to skip
+    // (or narrow the window of) positions already searched - including ones
+    // which are only a rotation or reflection of this one, if the heuristic is
+    // symmetric
+    // Moves are played and then retracted on the same game (makeMove/undoMove),
+    // so game is left exactly as it was passed in
+    private long minimax(Game game, int depth, long alpha, long beta, int size) {
+        countNode();
+        if (game.isOver() || depth == 0)
+            return evaluateLeaf(game);
+
+        long key = key(game, symmetric);
+        long entry = probe(key, depth);
+        int tableMove = -1;
+        if (entry != TranspositionTable.NO_ENTRY) {
+            tableMove = fromCanonical(game, size, TranspositionTable.move(entry), symmetric);
+            if (TranspositionTable.depth(entry) >= depth) {
+                long score = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT) return score;
+                else if (bound == TranspositionTable.LOWER) alpha = Math.max(alpha, score);
+                else beta = Math.min(beta, score);
+                if (alpha >= beta) return score;
+            }
         }
 
-        var moves = getMoves(game);
-
-        if (game.currentPlayer() == player) {
-            long bestScore = Integer.MIN_VALUE;
-            for (Move move : moves) {
-                Game newGame = game.copy();
-                newGame.makeMove(move);
-                long score = minimax(newGame, depth - 1, alpha, beta, player);
-                bestScore = Math.max(bestScore, score);
-                if (bestScore >= beta) return bestScore;
-                alpha = Math.max(alpha, score);
+        expandedNodes++;
+        long originalAlpha = alpha;
+        long bestScore = LOSS;
+        int bestMove = -1;
+        // symmetric siblings are only worth weeding out well above the leaves
+        var moves = getMoves(game, depth, tableMove, symmetric && depth >= SYMMETRY_MIN_DEPTH);
+        boolean batched = false;
+        for (int i = 0; i < moves.size(); i++) {
+            var move = MoveImpl.ofCell(moves.get(i), size);
+            // the first move often causes a cutoff on its own, so the rest of the
+            // leaves are only scored (all together) once it hasn't
+            if (i == 1 && depth == 1 && heuristic instanceof BatchHeuristic) {
+                scoreLeaves(game, moves, size);
+                batched = true;
+            }
+            play(game, move, heuristic);
+            long score = batched ? -leaf(game, leafScores[i - 1]) : searchChild(game, i, depth, alpha, beta, size);
+            retract(game, move, heuristic);
+            if (score > bestScore || bestMove < 0) {
+                bestScore = score;
+                bestMove = moves.get(i);
             }
-            return bestScore;
-        } else {
-            long bestScore = Integer.MAX_VALUE;
-            for (Move move : moves) {
-                Game newGame = game.copy();
-                newGame.makeMove(move);
-                long score = minimax(newGame, depth - 1, alpha, beta, player);
-                bestScore = Math.min(bestScore, score);
-                if (bestScore <= alpha) return bestScore;
-                beta = Math.min(beta, score);
+            if (bestScore >= beta) {
+                orderer.recordCutoff(bestMove, rootDepth - depth, depth, game.currentPlayer());
+                betaCutoffs++;
+                if (i == 0)
+                    firstMoveCutoffs++;
+                break;
             }
-            return bestScore;
+            alpha = Math.max(alpha, score);
         }
+
+        int bound = bestScore <= originalAlpha ? TranspositionTable.UPPER
+                : bestScore >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        store(key, depth, bound, bestScore, toCanonical(game, size, bestMove, symmetric));
+        return bestScore;
     }
 
-    @Override
-    public Move getCurrentPlayerMove(Game game) {
-        var moves = getMoves(game);
-        Move bestMove = moves.get(0);
-        long bestScore = Integer.MIN_VALUE, alpha = Integer.MIN_VALUE, beta = Integer.MAX_VALUE;
-        for (Move move : moves) {
-            Game newGame = game.copy();
-            newGame.makeMove(move);
-            long score = minimax(newGame, maxDepth-1, alpha, beta, game.currentPlayer());
+    // counts a node visited, and checks the clock every so often
+    private void countNode() {
+        nodes++;
+        if (budgetNanos > 0 && --nodesUntilClockCheck <= 0) {
+            nodesUntilClockCheck = CLOCK_CHECK_INTERVAL;
+            if (System.nanoTime() - deadline > 0) throw TIMEOUT;
+        }
+    }
+
+    // has the BatchHeuristic score the children of all but the first of moves
+    // into leafScores
+    private void scoreLeaves(Game game, IntMoveList moves, int size) {
+        leafMoves.clear();
+        for (int i = 1; i < moves.size(); i++)
+            leafMoves.add(MoveImpl.ofCell(moves.get(i), size));
+        if (leafScores.length < leafMoves.size())
+            leafScores = new int[leafMoves.size()];
+        long start = System.nanoTime();
+        ((BatchHeuristic) heuristic).scoreChildren(game, leafMoves, leafScores);
+        heuristicNanos += System.nanoTime() - start;
+        heuristicCalls += leafMoves.size();
+    }
+
+    // minimax(game, 0, ...) given the heuristic's score of game, already worked
+    // out by a BatchHeuristic
+    // (a leaf's score doesn't depend on the window, so this holds for the null
+    // windows of selective search too)
+    private long leaf(Game game, int heuristicScore) {
+        countNode();
+        if (game.isOver())
+            return evaluateLeaf(game);
+        leaves++;
+        return heuristicScore;
+    }
+
+    // evaluate(game, heuristic), counted for SearchStats
+    private long evaluateLeaf(Game game) {
+        leaves++;
+        var winner = game.winner();
+        if (winner == game.currentPlayer()) return WIN;
+        else if (winner != PieceColour.NONE) return LOSS;
+
+        if ((++heuristicCalls & (HEURISTIC_TIMING_SAMPLE - 1)) != 0)
+            return heuristic.score(game);
+        long start = System.nanoTime();
+        int score = heuristic.score(game);
+        heuristicNanos += (System.nanoTime() - start) * HEURISTIC_TIMING_SAMPLE;
+        return score;
+    }
+
+    // Score of the move just made (the index-th move of its parent)
+    // Normally a plain full-window search; in selective mode every move but the
+    // first is searched with a null window (alpha, alpha + 1), at reduced depth
+    // if it is late in the move order, and re-searched only if it beats alpha
+    private long searchChild(Game game, int index, int depth, long alpha, long beta, int size) {
+        if (!selective || index == 0)
+            return -minimax(game, depth - 1, -beta, -alpha, size);
+
+        int reduction = 0;
+        if (depth >= LMR_MIN_DEPTH && index >= LMR_MIN_INDEX)
+            reduction = index >= LMR_DEEP_INDEX && depth >= LMR_DEEP_DEPTH ? 2 : 1;
+
+        long score = -minimax(game, depth - 1 - reduction, -alpha - 1, -alpha, size);
+        if (score > alpha && reduction > 0)
+            score = -minimax(game, depth - 1, -alpha - 1, -alpha, size);
+        if (score > alpha && score < beta)
+            score = -minimax(game, depth - 1, -beta, -alpha, size);
+        return score;
+    }
+
+    // Searches the root position to the given depth within (alpha, beta),
+    // returning the best move and setting lastScore
+    // (or throws TIMEOUT if the time budget runs out first)
+    private Move searchRoot(Game search, int size, int depth, long alpha, long beta) {
+        rootDepth = depth;
+        long key = key(search, symmetric);
+        long entry = probe(key, depth);
+        int tableMove = entry == TranspositionTable.NO_ENTRY ? -1 : fromCanonical(search, size, TranspositionTable.move(entry), symmetric);
+        var moves = getMoves(search, depth, tableMove, symmetric);
+
+        // this exact search has been done before (e.g. an opening position from
+        // the position cache) - just play the move it found
+        if (entry != TranspositionTable.NO_ENTRY && TranspositionTable.depth(entry) >= depth
+                && TranspositionTable.bound(entry) == TranspositionTable.EXACT && tableMove >= 0
+                && moves.get(0) == tableMove) {
+            lastScore = TranspositionTable.score(entry);
+            return MoveImpl.ofCell(moves.get(0), size);
+        }
+
+        long originalAlpha = alpha;
+        Move bestMove = MoveImpl.ofCell(moves.get(0), size);
+        long bestScore = LOSS;
+        for (int i = 0; i < moves.size(); i++) {
+            var move = MoveImpl.ofCell(moves.get(i), size);
+            play(search, move, heuristic);
+            long score = searchChild(search, i, depth, alpha, beta, size);
+            retract(search, move, heuristic);
             if (score > bestScore) {
                 bestScore = score;
                 bestMove = move;
             }
+            if (bestScore >= beta) break;
             alpha = Math.max(alpha, score);
         }
+        lastScore = bestScore;
+
+        int bound = bestScore <= originalAlpha ? TranspositionTable.UPPER
+                : bestScore >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        store(key, depth, bound, bestScore, toCanonical(search, size, bestMove.getRow() * size + bestMove.getCol(), symmetric));
+        return bestMove;
+    }
+
+    // One iteration of iterative deepening
+    // In selective mode, the root is first searched in a narrow aspiration window
+    // around the last iteration's score, and only searched again with the full
+    // window if the true score turns out to lie outside it
+    private Move iterate(Game search, int size, int depth) {
+        if (selective && depth > 1 && lastScore > LOSS && lastScore < WIN) {
+            long alpha = lastScore - ASPIRATION_WINDOW, beta = lastScore + ASPIRATION_WINDOW;
+            Move move = searchRoot(search, size, depth, alpha, beta);
+            if (lastScore > alpha && lastScore < beta)
+                return move;
+        }
+        return searchRoot(search, size, depth, LOSS, WIN);
+    }
+
+    // iterate, recording the finished iteration for Flight Recorder
+    private Move recordedIteration(Game search, int size, int depth) {
+        var event = new SearchIterationEvent();
+        event.begin();
+        long nodesBefore = nodes;
+        Move move = iterate(search, size, depth);
+        depthReached = depth;
+        if (event.shouldCommit()) {
+            event.depth = depth;
+            event.score = lastScore;
+            event.move = move.toString();
+            event.nodes = nodes - nodesBefore;
+            event.commit();
+        }
+        return move;
+    }
+
+    @Override
+    public Move getCurrentPlayerMove(Game game) {
+        var event = new MoveSearchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        nodes = leaves = heuristicCalls = heuristicNanos = expandedNodes = betaCutoffs = firstMoveCutoffs = 0;
+        depthReached = 0;
+
+        Move move = search(game);
+
+        lastStats = new SearchStats(nodes, leaves, heuristicCalls, heuristicNanos, expandedNodes, betaCutoffs,
+                firstMoveCutoffs, depthReached, System.nanoTime() - start);
+        event.record(this, game, move, lastStats);
+        return move;
+    }
+
+    private Move search(Game game) {
+        // search on a single private copy, so the caller's game is never touched
+        Game search = game.copy();
+        int size = search.getGrid().getSize();
+        table.newSearch();
+        orderer.newSearch(size);
+
+        boolean timed = budgetNanos > 0;
+        if (!timed && !selective)
+            return recordedIteration(search, size, maxDepth);
+
+        deadline = System.nanoTime() + budgetNanos;
+        nodesUntilClockCheck = CLOCK_CHECK_INTERVAL;
+
+        // iterative deepening - each iteration's best move is stored in the table,
+        // so the next (deeper) iteration searches it first
+        Move bestMove = null;
+        int emptyCells = search.getMoves().size();
+        for (int depth = 1; depth <= Math.min(maxDepth, emptyCells); depth++) {
+            try {
+                bestMove = recordedIteration(search, size, depth);
+            } catch (SearchTimeout e) {
+                break; // search is left mid-move, but it is only our private copy
+            }
+            if (lastScore == WIN || lastScore == LOSS || timed && System.nanoTime() - deadline > 0)
+                break; // result can't change with more depth, or out of time
+        }
+
+        // not even depth 1 finished - any move will do
+        if (bestMove == null)
+            bestMove = game.getMoves().iterator().next();
         return bestMove;
     }
-    
+
 }
@@ -0,0 +1,279 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import game.*;
+
+// An AI based on Monte Carlo Tree Search (UCT)
+// Rather than a heuristic, positions are judged by playing them out to the end
+// with random moves many times over. The search tree grows towards the moves
+// which win most often, balanced against trying moves it knows little about
+// (the UCB1 formula in select). Connection games suit this well: a random
+// playout always ends in a result, and there is no good static evaluation to
+// lose by not using one
+//
+// Several threads grow the same tree at once ("tree parallelisation"). Node
+// statistics are updated with atomic adds rather than locks, and a thread
+// walking down the tree adds a "virtual loss" to each node it passes, so that
+// other threads are steered towards different parts of the tree until its
+// playout result is added back in
+public class MonteCarlo implements InstrumentedAI {
+    // UCB1 exploration constant - higher explores more
+    private static final double EXPLORATION = 0.7;
+
+    // visits added (without any score) while a thread is below a node
+    private static final int VIRTUAL_LOSS = 3;
+
+    // playout results, in half points for the player who made a node's move
+    private static final int WIN = 2, DRAW = 1;
+
+    private final int threads;
+    private final long budgetNanos;
+    private final long maxPlayouts;
+    private final ExecutorService pool;
+
+    private volatile SearchStats lastStats = SearchStats.EMPTY;
+
+    // SearchStats counters for one worker thread, added up when it finishes
+    private static class Counters {
+        long nodes; // tree nodes walked plus moves played out
+        long treeNodes; // just the tree nodes
+        long playouts;
+        int depth; // deepest tree node reached
+    }
+
+    // threads is the number of threads to search with
+    // millisPerMove is the time budget per move (0 for no time limit)
+    // maxPlayouts is the number of playouts per move (0 for no limit)
+    // at least one of the two budgets must be set
+    public MonteCarlo(int threads, long millisPerMove, long maxPlayouts) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be at least 1");
+        if (millisPerMove < 0 || maxPlayouts < 0) throw new IllegalArgumentException("budgets must not be negative");
+        if (millisPerMove == 0 && maxPlayouts == 0)
+            throw new IllegalArgumentException("at least one of millisPerMove and maxPlayouts must be set");
+
+        this.threads = threads;
+        this.budgetNanos = millisPerMove * 1_000_000;
+        this.maxPlayouts = maxPlayouts;
+        this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+            var thread = new Thread(runnable, "MonteCarlo worker");
+            thread.setDaemon(true); // don't keep the program alive
+            return thread;
+        });
+    }
+
+    // as above, with one thread per available processor and only a time budget
+    public MonteCarlo(long millisPerMove) {
+        this(Runtime.getRuntime().availableProcessors(), millisPerMove, 0);
+    }
+
+    private static class Node {
+        static final AtomicIntegerFieldUpdater<Node> VISITS = AtomicIntegerFieldUpdater.newUpdater(Node.class, "visits");
+        static final AtomicIntegerFieldUpdater<Node> SCORE = AtomicIntegerFieldUpdater.newUpdater(Node.class, "score");
+        static final AtomicIntegerFieldUpdater<Node> EXPANDING = AtomicIntegerFieldUpdater.newUpdater(Node.class, "expanding");
+        static final AtomicReferenceFieldUpdater<Node, Node[]> CHILDREN = AtomicReferenceFieldUpdater
+                .newUpdater(Node.class, Node[].class, "children");
+
+        final Move move; // move leading here (null for the root)
+        final PieceColour mover; // player who made it
+
+        volatile int visits = 0;
+        volatile int score = 0; // half points for mover
+        volatile int expanding = 0; // 1 once some thread has claimed expansion
+        volatile Node[] children = null; // published once fully built
+
+        Node(Move move, PieceColour mover) {
+            this.move = move;
+            this.mover = mover;
+        }
+    }
+
+    // the child with the highest UCB1 value
+    // unvisited children come first, in their (random) order
+    private static Node select(Node node) {
+        Node[] children = node.children;
+        double logVisits = Math.log(Math.max(1, node.visits));
+        Node best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (Node child : children) {
+            int visits = child.visits;
+            if (visits == 0)
+                return child;
+            double value = child.score / (2.0 * visits) + EXPLORATION * Math.sqrt(logVisits / visits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    // creates the children of node (game is at node's position), unless
+    // another thread is already doing so
+    private static void expand(Node node, Game game) {
+        if (!Node.EXPANDING.compareAndSet(node, 0, 1))
+            return;
+
+        var moves = new ArrayList<>(game.getMoves());
+        var random = ThreadLocalRandom.current();
+        var children = new Node[moves.size()];
+        var mover = game.currentPlayer();
+        for (int i = 0; i < children.length; i++) {
+            // random order, so that ties (and unvisited children) aren't biased
+            int j = random.nextInt(i + 1);
+            children[i] = children[j];
+            children[j] = new Node(moves.get(i), mover);
+        }
+        Node.CHILDREN.set(node, children);
+    }
+
+    // plays random moves until the game ends, returning the winner, then takes
+    // them all back again
+    // (moves is a buffer for the thread's move list, reused between playouts)
+    private static PieceColour playout(Game game, IntMoveList moves, Counters counters) {
+        counters.playouts++;
+        if (game.isOver())
+            return game.winner();
+
+        game.getMoves(moves);
+        var random = ThreadLocalRandom.current();
+        int made = 0;
+        for (int i = moves.size() - 1; i >= 0 && !game.isOver(); i--) {
+            int j = random.nextInt(i + 1);
+            int move = moves.get(j);
+            moves.set(j, moves.get(i));
+            game.makeMove(move);
+            made++;
+        }
+        counters.nodes += made;
+        var winner = game.winner();
+        for (; made > 0; made--)
+            game.undoMove();
+        return winner;
+    }
+
+    // one iteration: walk down the tree (adding virtual losses), expand the
+    // leaf reached, play it out, then replace the virtual losses with the result
+    // game is the calling thread's own game at the root position, and is back
+    // there again afterwards - moves are made on the way down and undone after
+    // the playout, so nothing is copied here
+    private static void iterate(Node root, Game game, Node[] path, IntMoveList moves, Counters counters) {
+        int length = 0;
+        Node node = root;
+        path[length++] = root;
+        Node.VISITS.addAndGet(root, VIRTUAL_LOSS);
+
+        while (node.children != null && node.children.length > 0) {
+            node = select(node);
+            game.makeMove(node.move);
+            path[length++] = node;
+            Node.VISITS.addAndGet(node, VIRTUAL_LOSS);
+        }
+
+        if (!game.isOver() && node.visits > VIRTUAL_LOSS) {
+            // visited before - grow the tree by one level here
+            expand(node, game);
+            Node[] children = node.children;
+            if (children != null && children.length > 0) {
+                node = select(node);
+                game.makeMove(node.move);
+                path[length++] = node;
+                Node.VISITS.addAndGet(node, VIRTUAL_LOSS);
+            }
+        }
+
+        counters.nodes += length;
+        counters.treeNodes += length;
+        counters.depth = Math.max(counters.depth, length - 1);
+        var winner = playout(game, moves, counters);
+        for (int i = 1; i < length; i++)
+            game.undoMove();
+        for (int i = 0; i < length; i++) {
+            Node visited = path[i];
+            Node.VISITS.addAndGet(visited, 1 - VIRTUAL_LOSS);
+            int result = winner == PieceColour.NONE ? DRAW : winner == visited.mover ? WIN : 0;
+            if (result != 0)
+                Node.SCORE.addAndGet(visited, result);
+        }
+    }
+
+    @Override
+    public SearchStats getLastSearchStats() {
+        return lastStats;
+    }
+
+    @Override
+    public Move getCurrentPlayerMove(Game game) {
+        var event = new MoveSearchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        Game rootGame = game.copy();
+        var root = new Node(null, null);
+        expand(root, rootGame);
+        if (root.children.length == 1) {
+            lastStats = new SearchStats(1, 0, 0, 0, 1, 0, 0, 0, System.nanoTime() - start);
+            event.record(this, game, root.children[0].move, lastStats);
+            return root.children[0].move;
+        }
+
+        long deadline = System.nanoTime() + budgetNanos;
+        var playouts = new AtomicLong();
+        int maxPathLength = rootGame.getMoves().size() + 2;
+
+        var workers = new ArrayList<Future<Counters>>(threads);
+        for (int t = 0; t < threads; t++) {
+            // each worker plays on its own game, moving down the tree and back
+            // A copy starts out sharing rootGame's storage (see game.Sharers),
+            // but clones each part the first time it writes to it - after the
+            // first few iterations the worker only touches storage it owns
+            var workerRoot = rootGame.copy();
+            workers.add(pool.submit(() -> {
+                var path = new Node[maxPathLength];
+                var moves = new IntMoveList(maxPathLength);
+                var counters = new Counters();
+                while ((maxPlayouts == 0 || playouts.getAndIncrement() < maxPlayouts)
+                        && (budgetNanos == 0 || System.nanoTime() - deadline < 0))
+                    iterate(root, workerRoot, path, moves, counters);
+                return counters;
+            }));
+        }
+        long nodes = 0, treeNodes = 0, leaves = 0;
+        int depth = 0;
+        for (var worker : workers) {
+            try {
+                var counters = worker.get();
+                nodes += counters.nodes;
+                treeNodes += counters.treeNodes;
+                leaves += counters.playouts;
+                depth = Math.max(depth, counters.depth);
+            } catch (Exception e) {
+                throw new IllegalStateException("Monte Carlo search failed", e);
+            }
+        }
+
+        // the most visited move is the most reliable choice
+        Node best = root.children[0];
+        for (Node child : root.children)
+            if (child.visits > best.visits)
+                best = child;
+
+        // every playout is a leaf, and every tree node walked through on the way
+        // to the one played out from was expanded (there are no heuristic calls
+        // or cutoffs)
+        lastStats = new SearchStats(nodes, leaves, 0, 0, treeNodes - leaves, 0, 0, depth, System.nanoTime() - start);
+        event.record(this, game, best.move, lastStats);
+        return best.move;
+    }
+
+    // stops the worker threads (the AI can't be used afterwards)
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,281 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import game.*;
+
+// Decides the order Minimax tries moves in
+// Alpha-beta prunes the most when the best move is searched first, so moves
+// are sorted by (in order of importance):
+//   1. the best move stored in the transposition table for this position
+//   2. killer moves - the last two moves which caused a cutoff at this ply
+//   3. the history table - how often (weighted by depth) a move has caused a
+//      cutoff anywhere in the search, for the player making it
+//   4. a static score: cells on a current shortest connection for either
+//      player (see markShortestPaths), then cells next to other pieces
+// Moves which are still tied can be shuffled with a seeded Random, so the AI
+// doesn't always play the same game
+//
+// An orderer remembers killers and history between calls, so each search
+// thread needs its own
+public class MoveOrderer {
+    private static final int MAX_PLY = 128;
+
+    // scores for each kind of move - each band is far above the one below it
+    private static final long TABLE_MOVE = 1L << 60, KILLER = 1L << 56, HISTORY_SCALE = 1L << 16;
+    private static final int ON_PATH = 64, ON_OPPONENT_PATH = 48, NEXT_TO_PIECE = 4;
+
+    // remaining depth at which the (graph search) shortest path scores are used
+    private static final int PATH_MIN_DEPTH = 2;
+
+    private final Random random; // null if ties are not shuffled
+    private final boolean shuffleOnly;
+
+    private int size = -1;
+    private int[][] killers = new int[MAX_PLY][2];
+    private long[][] history; // [colour][cell]
+
+    // reusable buffers for scoring
+    private byte[] cells;
+    private int[] distanceA, distanceB, deque;
+    private boolean[] onPath, onOpponentPath;
+    private long[] keys = new long[0];
+
+    // ties are broken by cell index, so the order is fully deterministic
+    public MoveOrderer() {
+        this(null, false);
+    }
+
+    // ties are shuffled with a Random seeded from seed
+    public MoveOrderer(long seed) {
+        this(new Random(seed), false);
+    }
+
+    private MoveOrderer(Random random, boolean shuffleOnly) {
+        this.random = random;
+        this.shuffleOnly = shuffleOnly;
+    }
+
+    // An orderer which shuffles the moves and only puts the table move first -
+    // how Minimax used to order moves, kept for comparison (see bench.MoveOrderingNodes)
+    public static MoveOrderer shuffled(long seed) {
+        return new MoveOrderer(new Random(seed), true);
+    }
+
+    // Prepares for a new search on a grid of the given size
+    // Killers are forgotten, and history is halved so that it follows the game
+    public void newSearch(int size) {
+        if (size != this.size) {
+            this.size = size;
+            int n = size * size;
+            history = new long[2][n];
+            cells = new byte[n];
+            distanceA = new int[n];
+            distanceB = new int[n];
+            deque = new int[Integer.highestOneBit(8 * n) << 1];
+            onPath = new boolean[n];
+            onOpponentPath = new boolean[n];
+        } else {
+            for (var colourHistory : history)
+                for (int i = 0; i < colourHistory.length; i++)
+                    colourHistory[i] >>= 1;
+        }
+        for (var plyKillers : killers)
+            Arrays.fill(plyKillers, -1);
+    }
+
+    // Records that move (as row * size + col) by player caused a beta cutoff
+    public void recordCutoff(int move, int ply, int depth, PieceColour player) {
+        if (shuffleOnly || move < 0)
+            return;
+        if (ply < MAX_PLY && killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        history[player == PieceColour.WHITE ? 0 : 1][move] += (long) depth * depth;
+    }
+
+    // Returns the moves of game sorted best-first
+    // tableMove is the transposition table move (-1 if none), ply the distance
+    // from the root, and depth the remaining search depth
+    public ArrayList<Move> order(Game game, int ply, int depth, int tableMove) {
+        var list = new IntMoveList(size * size);
+        order(game, ply, depth, tableMove, list);
+        var moves = new ArrayList<Move>(list.size());
+        for (int i = 0; i < list.size(); i++)
+            moves.add(MoveImpl.ofCell(list.get(i), size));
+        return moves;
+    }
+
+    // As above, but fills moves with the sorted moves as row * size + col
+    // (allocating nothing, once the list is big enough)
+    public void order(Game game, int ply, int depth, int tableMove, IntMoveList moves) {
+        game.getMoves(moves);
+        if (keys.length < moves.size())
+            keys = new long[Math.max(moves.size(), size * size)];
+
+        if (shuffleOnly) {
+            // (the same shuffle as Collections.shuffle, so seeds give the same orders)
+            for (int i = moves.size() - 1; i > 0; i--)
+                moves.swap(i, random.nextInt(i + 1));
+            for (int i = 0; i < moves.size(); i++)
+                keys[i] = moves.get(i) == tableMove ? 1 : 0;
+            sort(moves);
+            return;
+        }
+
+        var player = game.currentPlayer();
+        boolean usePaths = depth >= PATH_MIN_DEPTH;
+        readCells(game);
+        if (usePaths) {
+            var opponent = player == PieceColour.WHITE ? PieceColour.BLACK : PieceColour.WHITE;
+            markShortestPaths(player.ordinal(), opponent.ordinal(), onPath);
+            markShortestPaths(opponent.ordinal(), player.ordinal(), onOpponentPath);
+        }
+
+        long[] playerHistory = history[player == PieceColour.WHITE ? 0 : 1];
+        int killer0 = ply < MAX_PLY ? killers[ply][0] : -1, killer1 = ply < MAX_PLY ? killers[ply][1] : -1;
+        for (int i = 0; i < moves.size(); i++) {
+            int cell = moves.get(i);
+            long score;
+            if (cell == tableMove)
+                score = TABLE_MOVE;
+            else if (cell == killer0)
+                score = KILLER + 1;
+            else if (cell == killer1)
+                score = KILLER;
+            else {
+                score = Math.min(playerHistory[cell], KILLER / HISTORY_SCALE - 1) * HISTORY_SCALE;
+                if (usePaths && onPath[cell])
+                    score += ON_PATH;
+                if (usePaths && onOpponentPath[cell])
+                    score += ON_OPPONENT_PATH;
+                score += NEXT_TO_PIECE * neighbours(cell);
+            }
+            keys[i] = score;
+        }
+
+        // shuffle first so that the (stable) sort leaves ties in random order
+        if (random != null)
+            for (int i = moves.size() - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                moves.swap(i, j);
+                long key = keys[i];
+                keys[i] = keys[j];
+                keys[j] = key;
+            }
+        sort(moves);
+    }
+
+    // stable insertion sort of moves by keys, highest first (move lists are
+    // short, and usually close to sorted already)
+    private void sort(IntMoveList moves) {
+        for (int i = 1; i < moves.size(); i++) {
+            long key = keys[i];
+            int move = moves.get(i);
+            int j = i - 1;
+            while (j >= 0 && keys[j] < key) {
+                keys[j + 1] = keys[j];
+                moves.set(j + 1, moves.get(j));
+                j--;
+            }
+            keys[j + 1] = key;
+            moves.set(j + 1, move);
+        }
+    }
+
+    private void readCells(Game game) {
+        game.getGrid().copyCells(cells);
+    }
+
+    // number of occupied orthogonal neighbours
+    private int neighbours(int cell) {
+        int row = cell / size, col = cell % size, count = 0;
+        if (row > 0 && cells[cell - size] != 0) count++;
+        if (row < size - 1 && cells[cell + size] != 0) count++;
+        if (col > 0 && cells[cell - 1] != 0) count++;
+        if (col < size - 1 && cells[cell + 1] != 0) count++;
+        return count;
+    }
+
+    // Marks the empty cells lying on some shortest connection for colour (the
+    // one needing the fewest extra pieces, in whichever direction is shorter)
+    // A cell is on a shortest path between edges A and B iff the distance from
+    // A to it plus the distance from it to B (counting its own cost once) is
+    // the length of the shortest path
+    private void markShortestPaths(int colour, int opponent, boolean[] marks) {
+        Arrays.fill(marks, false);
+        int topToBottom = distances(colour, opponent, true, false, distanceA);
+        int leftToRight = distances(colour, opponent, false, false, distanceB);
+        boolean vertical = topToBottom <= leftToRight;
+        int best = Math.min(topToBottom, leftToRight);
+        if (best == Integer.MAX_VALUE)
+            return;
+
+        if (!vertical)
+            System.arraycopy(distanceB, 0, distanceA, 0, distanceA.length);
+        distances(colour, opponent, vertical, true, distanceB);
+
+        for (int cell = 0; cell < size * size; cell++)
+            if (cells[cell] == 0 && distanceA[cell] != Integer.MAX_VALUE && distanceB[cell] != Integer.MAX_VALUE
+                    && distanceA[cell] + distanceB[cell] - 1 == best)
+                marks[cell] = true;
+    }
+
+    // 0-1 BFS from one edge (top or left, or bottom or right if reverse)
+    // Entering an own cell costs 0, an empty cell 1; opponent cells are walls
+    // Fills distance (MAX_VALUE where unreachable) and returns the distance to
+    // the opposite edge
+    private int distances(int colour, int opponent, boolean vertical, boolean reverse, int[] distance) {
+        Arrays.fill(distance, Integer.MAX_VALUE);
+        // circular deque - a cell is only queued when its distance drops, which
+        // in a 0-1 BFS happens at most twice per cell, so it can never overflow
+        int mask = deque.length - 1, head = 0, tail = 0;
+
+        int line = reverse ? size - 1 : 0;
+        for (int i = 0; i < size; i++) {
+            int cell = vertical ? line * size + i : i * size + line;
+            if (cells[cell] == opponent)
+                continue;
+            int cost = cells[cell] == colour ? 0 : 1;
+            distance[cell] = cost;
+            if (cost == 0)
+                deque[head = (head - 1) & mask] = cell;
+            else {
+                deque[tail] = cell;
+                tail = (tail + 1) & mask;
+            }
+        }
+
+        int result = Integer.MAX_VALUE, end = reverse ? 0 : size - 1;
+        while (head != tail) {
+            int cell = deque[head];
+            head = (head + 1) & mask;
+            int row = cell / size, col = cell % size;
+            if ((vertical ? row : col) == end)
+                result = Math.min(result, distance[cell]);
+
+            for (int d = 0; d < 4; d++) {
+                int r = row + (d == 0 ? -1 : d == 1 ? 1 : 0), c = col + (d == 2 ? -1 : d == 3 ? 1 : 0);
+                if (r < 0 || r >= size || c < 0 || c >= size)
+                    continue;
+                int next = r * size + c;
+                if (cells[next] == opponent)
+                    continue;
+                int cost = cells[next] == colour ? 0 : 1;
+                if (distance[cell] + cost < distance[next]) {
+                    distance[next] = distance[cell] + cost;
+                    if (cost == 0)
+                        deque[head = (head - 1) & mask] = next;
+                    else {
+                        deque[tail] = next;
+                        tail = (tail + 1) & mask;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,69 @@
+package ai;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import game.*;
+
+// Java Flight Recorder event for one getCurrentPlayerMove call of an
+// InstrumentedAI - so a recording of a real game (java -XX:StartFlightRecording)
+// shows which moves were slow and why, without attaching a profiler
+// When no recording is running, begin() and record() cost next to nothing
+@Name("ai.MoveSearch")
+@Label("Move Search")
+@Category({ "Game AI" })
+@Description("An AI choosing a move")
+public class MoveSearchEvent extends Event {
+    @Label("AI")
+    String ai;
+
+    @Label("Board Size")
+    int boardSize;
+
+    @Label("Move")
+    String move;
+
+    @Label("Depth")
+    int depth;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Leaves")
+    long leaves;
+
+    @Label("Heuristic Calls")
+    long heuristicCalls;
+
+    @Label("Heuristic Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long heuristicTime;
+
+    @Label("Beta Cutoffs")
+    long betaCutoffs;
+
+    @Label("First Move Cutoffs")
+    long firstMoveCutoffs;
+
+    // fills in the event from a finished search, and commits it
+    void record(AI ai, Game game, Move move, SearchStats stats) {
+        end();
+        if (!shouldCommit())
+            return;
+        this.ai = ai.getClass().getSimpleName();
+        this.boardSize = game.getGrid().getSize();
+        this.move = String.valueOf(move);
+        this.depth = stats.getDepth();
+        this.nodes = stats.getNodes();
+        this.leaves = stats.getLeaves();
+        this.heuristicCalls = stats.getHeuristicCalls();
+        this.heuristicTime = stats.getHeuristicNanos();
+        this.betaCutoffs = stats.getBetaCutoffs();
+        this.firstMoveCutoffs = stats.getFirstMoveCutoffs();
+        commit();
+    }
+}
@@ -0,0 +1,255 @@
+package ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import game.*;
+
+// A precomputed move for every position in the first few plies of a game on
+// one board size, worked out offline by a long search (see build and main)
+// Those are the emptiest positions, where a search has the most moves to look
+// at and takes longest - with a book they cost one binary search instead
+//
+// File layout (little-endian):
+//   header, HEADER_BYTES long: magic, version, board size, plies, record count
+//   records, 12 bytes each, sorted by key: canonical key, entry
+// where entry packs the best move (as a canonical row * size + col) in its low
+// 16 bits, and the depth it was searched to in the next 8 (see move and depth)
+// Positions are stored once for all 8 symmetries (see Game.canonicalKey)
+//
+// The file is memory-mapped read-only, so it is only read from disk as far as
+// lookups touch it, and any number of threads (or processes) can share it
+public class OpeningBook {
+    private static final long MAGIC = 0x4b4f_4f42_4449_5247L; // "GRIDBOOK"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32, RECORD_BYTES = 12;
+
+    // returned by probe for a position which isn't in the book
+    public static final int NO_ENTRY = -1;
+
+    private final ByteBuffer buffer;
+    private final int boardSize, plies, count;
+
+    private OpeningBook(ByteBuffer buffer, int boardSize, int plies, int count) {
+        this.buffer = buffer;
+        this.boardSize = boardSize;
+        this.plies = plies;
+        this.count = count;
+    }
+
+    // Opens a book file
+    // Throws IllegalArgumentException if it is for another board size
+    public static OpeningBook open(Path path, int boardSize) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES)
+                throw new IOException("Not an opening book file (too short)");
+            // (the mapping stays valid after the channel is closed)
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getLong(0) != MAGIC || buffer.getInt(8) != VERSION)
+                throw new IOException("Not an opening book file (bad magic or version)");
+            int count = buffer.getInt(20);
+            if (count < 0 || channel.size() != HEADER_BYTES + (long) RECORD_BYTES * count)
+                throw new IOException("Opening book file is truncated or corrupt");
+            if (buffer.getInt(12) != boardSize)
+                throw new IllegalArgumentException(String.format("Opening book is for board size %d (expected %d)",
+                        buffer.getInt(12), boardSize));
+            return new OpeningBook(buffer, boardSize, buffer.getInt(16), count);
+        }
+    }
+
+    // the usual file name for a board size's book
+    public static Path fileName(Path directory, int boardSize) {
+        return directory.resolve("book-" + boardSize + ".bin");
+    }
+
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    // positions with fewer than this many pieces on the board are in the book
+    // (apart from finished games)
+    public int getPlies() {
+        return plies;
+    }
+
+    // the number of (canonical) positions in the book
+    public int size() {
+        return count;
+    }
+
+    private long key(int index) {
+        return buffer.getLong(HEADER_BYTES + index * RECORD_BYTES);
+    }
+
+    // looks up a position by canonical key, returning its entry or NO_ENTRY
+    public int probe(long key) {
+        int low = 0, high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long found = key(middle);
+            if (found < key)
+                low = middle + 1;
+            else if (found > key)
+                high = middle - 1;
+            else
+                return buffer.getInt(HEADER_BYTES + middle * RECORD_BYTES + 8);
+        }
+        return NO_ENTRY;
+    }
+
+    // the canonical move of an entry
+    public static int move(int entry) {
+        return entry & 0xffff;
+    }
+
+    // how deep the move was searched (0 if the AI which found it didn't say)
+    public static int depth(int entry) {
+        return entry >>> 16 & 0xff;
+    }
+
+    private static int pack(int move, int depth) {
+        return move | Math.min(depth, 0xff) << 16;
+    }
+
+    // The book move for game (in game's own orientation), or null if the
+    // position isn't in the book
+    // Also null if the book's move isn't legal in game - positions are only
+    // matched by key, so a hash collision (or a damaged file) could otherwise
+    // give a move onto an occupied cell
+    public Move lookup(Game game) {
+        var grid = game.getGrid();
+        if (grid.getSize() != boardSize || game.isOver())
+            return null;
+        int entry = probe(game.canonicalKey());
+        if (entry == NO_ENTRY || move(entry) >= boardSize * boardSize)
+            return null;
+        int move = Symmetry.apply(Symmetry.inverse(game.canonicalSymmetry()), boardSize, move(entry));
+        if (grid.getPiece(move / boardSize, move % boardSize) != PieceColour.NONE)
+            return null;
+        return MoveImpl.ofCell(move, boardSize);
+    }
+
+    // ----- building books -----
+
+    // Searches every position with fewer than plies pieces on a board of the
+    // given size (one of each symmetric group, and not finished games) with an
+    // AI from searcher, and writes the moves to a book file at path
+    // Positions are searched on threads threads at once, each with its own AI
+    // Returns the number of positions in the book
+    public static int build(Path path, int size, int plies, Supplier<AI> searcher, int threads)
+            throws IOException {
+        if (size < 1 || size * size > 0xffff + 1)
+            throw new IllegalArgumentException("Board size " + size + " is out of range for a book");
+        if (plies < 0)
+            throw new IllegalArgumentException("plies must not be negative");
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1");
+
+        // breadth first through the plies, keeping one position per symmetric group
+        var positions = new ArrayList<Game>();
+        var seen = new HashSet<Long>();
+        var level = new ArrayList<Game>();
+        var start = new GameImpl(size);
+        if (plies > 0) {
+            level.add(start);
+            seen.add(start.canonicalKey());
+        }
+        var moves = new IntMoveList(size * size);
+        for (int ply = 0; ply < plies && !level.isEmpty(); ply++) {
+            positions.addAll(level);
+            if (ply == plies - 1)
+                break;
+            var next = new ArrayList<Game>();
+            for (var position : level) {
+                position.getMoves(moves);
+                for (int i = 0; i < moves.size(); i++) {
+                    var child = position.copy();
+                    child.makeMove(moves.get(i));
+                    if (!child.isOver() && seen.add(child.canonicalKey()))
+                        next.add(child);
+                }
+            }
+            level = next;
+        }
+
+        // search them all (AIs keep state between moves, so one per thread)
+        var keys = new long[positions.size()];
+        var entries = new int[positions.size()];
+        ThreadLocal<AI> ais = ThreadLocal.withInitial(searcher);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < positions.size(); i++) {
+                int index = i;
+                futures.add(pool.submit(() -> {
+                    var position = positions.get(index);
+                    var ai = ais.get();
+                    var move = ai.getCurrentPlayerMove(position);
+                    int cell = move.getRow() * size + move.getCol();
+                    int depth = ai instanceof InstrumentedAI
+                            ? ((InstrumentedAI) ai).getLastSearchStats().getDepth()
+                            : 0;
+                    keys[index] = position.canonicalKey();
+                    entries[index] = pack(Symmetry.apply(position.canonicalSymmetry(), size, cell), depth);
+                }));
+            }
+            for (var future : futures)
+                future.get();
+        } catch (Exception e) {
+            throw new IllegalStateException("Opening book search failed", e);
+        } finally {
+            pool.shutdown();
+        }
+
+        // sort by key (keys are distinct - one position per group)
+        var order = new ArrayList<Integer>();
+        for (int i = 0; i < keys.length; i++)
+            order.add(i);
+        order.sort((a, b) -> Long.compare(keys[a], keys[b]));
+
+        var buffer = ByteBuffer.allocate(HEADER_BYTES + RECORD_BYTES * keys.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(MAGIC).putInt(VERSION).putInt(size).putInt(plies).putInt(keys.length);
+        buffer.position(HEADER_BYTES);
+        for (int index : order)
+            buffer.putLong(keys[index]).putInt(entries[index]);
+        Files.write(path, buffer.array());
+        return keys.length;
+    }
+
+    // Builds books for a range of board sizes
+    // Usage: java ai.OpeningBook [minSize-maxSize] [plies] [millisPerPosition] [directory]
+    //   e.g. java ai.OpeningBook 3-11 3 2000 .
+    public static void main(String[] args) throws IOException {
+        String[] sizes = (args.length > 0 ? args[0] : "3-11").split("-");
+        int minSize = Integer.parseInt(sizes[0]);
+        int maxSize = Integer.parseInt(sizes[sizes.length - 1]);
+        int plies = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        long millis = args.length > 2 ? Long.parseLong(args[2]) : 2000;
+        Path directory = Path.of(args.length > 3 ? args[3] : ".");
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int size = minSize; size <= maxSize; size++) {
+            long start = System.nanoTime();
+            int count = build(fileName(directory, size), size, plies, () -> {
+                var minimax = Minimax.withTimeBudget(millis, new IncrementalMinPiecesHeuristic());
+                minimax.setSelectiveSearch(true);
+                return minimax;
+            }, threads);
+            System.out.printf("%dx%d: %d positions in %.1f s -> %s%n", size, size, count,
+                    (System.nanoTime() - start) / 1e9, fileName(directory, size));
+        }
+    }
+}
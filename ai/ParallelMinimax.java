@@ -0,0 +1,506 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import game.*;
+
+// A multi-threaded version of Minimax, using "young brothers wait" parallel
+// alpha-beta search on a ForkJoinPool:
+// at each node the first (hopefully best) move is searched on its own, which
+// usually sets a good alpha bound, and only then are the remaining moves
+// searched in parallel - sharing that bound, and raising it as they finish
+// Every node below a split re-reads the bounds of the splits above it, so a
+// raised bound narrows searches already running, and a cutoff abandons them
+//
+// Scores and move ordering are the same as Minimax, so with the same depth
+// and heuristic it plays moves of the same quality (the heuristic must be
+// safe to call from several threads at once)
+public class ParallelMinimax implements InstrumentedAI {
+    // below this remaining depth, subtrees are too small to be worth splitting
+    private static final int MIN_SPLIT_DEPTH = 3;
+
+    // as in Minimax, one heuristic call in this many is timed (a power of 2)
+    private static final int HEURISTIC_TIMING_SAMPLE = 16;
+
+    // with a time budget, each thread checks the clock once every this many
+    // nodes (a power of 2)
+    private static final int CLOCK_CHECK_INTERVAL = 1024;
+
+    private final int maxDepth;
+    private final Heuristic heuristic;
+    private final boolean symmetric; // as in Minimax
+    private final TranspositionTable table;
+    private final ForkJoinPool pool;
+
+    // move orderers hold killers and history, so each thread gets its own
+    // (reset at the start of each search - see orderer())
+    private final ThreadLocal<ThreadOrderer> orderers = ThreadLocal.withInitial(ThreadOrderer::new);
+    private volatile int searchNumber = 0;
+    private volatile int searchSize;
+    private volatile Move rootMove; // best move found at the root, by search()
+
+    // time budget per move (0 for none), and when the current search runs out
+    private long budgetNanos = 0;
+    private volatile long deadline;
+    private volatile boolean timeUp;
+
+    private static class ThreadOrderer {
+        final MoveOrderer orderer = new MoveOrderer(System.nanoTime());
+        int searchNumber = -1; // search the orderer was last reset for
+    }
+
+    // SearchStats counters, kept per thread so that counting needs no
+    // synchronisation - each thread's are registered in allCounters when it
+    // first searches, and added up once the search is over
+    private final List<Counters> allCounters = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Counters> counters = ThreadLocal.withInitial(() -> {
+        var local = new Counters();
+        allCounters.add(local);
+        return local;
+    });
+    private SearchStats lastStats = SearchStats.EMPTY;
+
+    private static class Counters {
+        long nodes, leaves, heuristicCalls, heuristicNanos, expandedNodes, betaCutoffs, firstMoveCutoffs;
+        int searchNumber = -1; // search the counters were last reset for
+    }
+
+    // maxDepth and heuristic are as for Minimax
+    // parallelism is the number of threads to search with
+    public ParallelMinimax(int maxDepth, Heuristic heuristic, int parallelism) {
+        this(maxDepth, heuristic, parallelism, new TranspositionTable(Minimax.DEFAULT_TABLE_SIZE_LOG2));
+    }
+
+    // as above, but with a given transposition table, shared by all threads
+    public ParallelMinimax(int maxDepth, Heuristic heuristic, int parallelism, TranspositionTable table) {
+        if (maxDepth < 1) throw new IllegalArgumentException("maxDepth must be at least 1");
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be at least 1");
+        this.maxDepth = maxDepth;
+        this.heuristic = heuristic;
+        this.symmetric = heuristic.isSymmetric();
+        this.table = table;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    // as above, using one thread per available processor
+    public ParallelMinimax(int maxDepth, Heuristic heuristic) {
+        this(maxDepth, heuristic, Runtime.getRuntime().availableProcessors());
+    }
+
+    // A ParallelMinimax which searches for a fixed amount of time per move, as
+    // Minimax.withTimeBudget does: deeper and deeper searches, playing the best
+    // move of the deepest one which finished
+    public static ParallelMinimax withTimeBudget(long millisPerMove, Heuristic heuristic, int parallelism) {
+        if (millisPerMove < 1) throw new IllegalArgumentException("millisPerMove must be at least 1");
+        var minimax = new ParallelMinimax(Integer.MAX_VALUE, heuristic, parallelism);
+        minimax.budgetNanos = millisPerMove * 1_000_000;
+        return minimax;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public SearchStats getLastSearchStats() {
+        return lastStats;
+    }
+
+    // this thread's counters, zeroed for the current search
+    private Counters counters() {
+        var local = counters.get();
+        if (local.searchNumber != searchNumber) {
+            local.searchNumber = searchNumber;
+            local.nodes = local.leaves = local.heuristicCalls = local.heuristicNanos = 0;
+            local.expandedNodes = local.betaCutoffs = local.firstMoveCutoffs = 0;
+        }
+        return local;
+    }
+
+    // Minimax.evaluate, counted
+    private long evaluate(Game game, Counters counters) {
+        counters.leaves++;
+        var winner = game.winner();
+        if (winner == game.currentPlayer()) return Minimax.WIN;
+        else if (winner != PieceColour.NONE) return Minimax.LOSS;
+
+        if ((++counters.heuristicCalls & (HEURISTIC_TIMING_SAMPLE - 1)) != 0)
+            return heuristic.score(game);
+        long start = System.nanoTime();
+        int score = heuristic.score(game);
+        counters.heuristicNanos += (System.nanoTime() - start) * HEURISTIC_TIMING_SAMPLE;
+        return score;
+    }
+
+    // this thread's move orderer, ready for the current search
+    private MoveOrderer orderer() {
+        var local = orderers.get();
+        if (local.searchNumber != searchNumber) {
+            local.searchNumber = searchNumber;
+            local.orderer.newSearch(searchSize);
+        }
+        return local.orderer;
+    }
+
+    // ordered moves - the ply isn't tracked across threads, so killer moves are
+    // kept per remaining depth instead
+    private ArrayList<Move> getMoves(Game game, int depth, int tableMove) {
+        var moves = orderer().order(game, depth, depth, tableMove);
+        return symmetric && depth >= Minimax.SYMMETRY_MIN_DEPTH ? Minimax.removeSymmetric(game, moves) : moves;
+    }
+
+    // Thrown to abandon a subtree whose result can no longer matter - because a
+    // sibling searched in parallel has raised the bound at a split point above
+    // it past its window, or caused a cutoff there - or because time is up
+    // (which abandons every subtree, and so the whole search)
+    // (preallocated and stackless, like Minimax's SearchTimeout; nothing from
+    // an abandoned subtree is stored in the table, as its scores are unproven)
+    private static class SearchAborted extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        SearchAborted() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final SearchAborted ABORTED = new SearchAborted();
+
+    // A node whose younger brothers are being searched in parallel
+    // Helpers take its moves in order, and every node below it re-reads its
+    // alpha (see narrowAlpha/narrowBeta), so a bound raised by one sibling
+    // narrows the searches of all the others while they run
+    private static class SplitPoint {
+        final SplitPoint parent; // the split point above this one, if any
+        final int ply;
+        final long beta;
+        final List<Move> moves;
+
+        volatile long alpha;
+        volatile boolean aborted; // a subtree was abandoned for a bound from above
+        // the best score so far, the index of its move, and whether the score is
+        // a real lower bound (it beat the alpha it was searched with) - guarded by this
+        long best;
+        int bestIndex;
+        boolean bestIsReal;
+        private int next;
+
+        SplitPoint(SplitPoint parent, int ply, long alpha, long beta, List<Move> moves, long best, int bestIndex,
+                boolean bestIsReal) {
+            this.parent = parent;
+            this.ply = ply;
+            this.alpha = Math.max(alpha, best);
+            this.beta = beta;
+            this.moves = moves;
+            this.best = best;
+            this.bestIndex = bestIndex;
+            this.bestIsReal = bestIsReal;
+            this.next = bestIndex + 1; // the eldest has been searched already
+        }
+
+        // index of the next move to search, or -1 if there are none left
+        synchronized int nextMove() {
+            return next < moves.size() ? next++ : -1;
+        }
+
+        // records the score of moves[index], searched with the given alpha
+        synchronized void update(long score, int index, long searchedAlpha) {
+            if (score > best) {
+                best = score;
+                bestIndex = index;
+                bestIsReal = score > searchedAlpha;
+            }
+            if (score > alpha)
+                alpha = score;
+        }
+
+        boolean cutoff() {
+            return alpha >= beta;
+        }
+    }
+
+    // A node ply plies from the root is an even number of plies below a split
+    // point when it is the same player's move there, so it needn't look for
+    // anything below that split point's alpha - and an odd number below when
+    // it's the other player's, so (negated) that alpha is a beta
+    // These narrow a node's window by every split point above it; narrowBeta
+    // also throws ABORTED if any of them has been abandoned
+    private static long narrowAlpha(long alpha, int ply, SplitPoint split) {
+        for (; split != null; split = split.parent)
+            if (((ply - split.ply) & 1) == 0)
+                alpha = Math.max(alpha, split.alpha);
+        return alpha;
+    }
+
+    private static long narrowBeta(long beta, int ply, SplitPoint split) {
+        for (; split != null; split = split.parent) {
+            if (split.aborted)
+                throw ABORTED;
+            if (((ply - split.ply) & 1) == 1)
+                beta = Math.min(beta, -split.alpha);
+        }
+        return beta;
+    }
+
+    // Searches game to the given depth, as Minimax.minimax does, returning the
+    // score (and at the root, setting rootMove)
+    // split is the nearest split point above this node, if any; nodes far
+    // enough from the leaves split their own younger brothers between threads
+    // Throws ABORTED if a split point above makes this node's result useless
+    private long search(Game game, int depth, long alpha, long beta, int size, int ply, SplitPoint split) {
+        var counters = counters();
+        counters.nodes++;
+        if (budgetNanos > 0 && outOfTime(counters))
+            throw ABORTED;
+        if (game.isOver() || depth == 0)
+            return evaluate(game, counters);
+
+        alpha = narrowAlpha(alpha, ply, split);
+        beta = narrowBeta(beta, ply, split);
+        if (alpha >= beta)
+            throw ABORTED;
+
+        long key = Minimax.key(game, symmetric);
+        long entry = table.probe(key);
+        int tableMove = -1;
+        if (entry != TranspositionTable.NO_ENTRY) {
+            tableMove = Minimax.fromCanonical(game, size, TranspositionTable.move(entry), symmetric);
+            // (not at the root, which must come back with a move)
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                long score = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT) return score;
+                else if (bound == TranspositionTable.LOWER) alpha = Math.max(alpha, score);
+                else beta = Math.min(beta, score);
+                if (alpha >= beta) return score;
+            }
+        }
+
+        counters.expandedNodes++;
+        var moves = getMoves(game, depth, tableMove);
+        // young brothers wait: with a split, only the eldest is searched here,
+        // and the rest in parallel once it has (usually) set a good bound
+        boolean splitting = depth >= MIN_SPLIT_DEPTH && moves.size() > 1;
+        long bestScore = Minimax.LOSS;
+        int bestIndex = -1;
+        boolean bestIsReal = false, cutoff = false;
+        for (int i = 0; i < (splitting ? 1 : moves.size()) && !cutoff; i++) {
+            if (i > 0) {
+                alpha = narrowAlpha(alpha, ply, split);
+                beta = narrowBeta(beta, ply, split);
+                if (bestIsReal && bestScore >= beta) {
+                    cutoff = true;
+                    break;
+                }
+                if (alpha >= beta)
+                    throw ABORTED;
+            }
+
+            var move = moves.get(i);
+            long searchedAlpha = Math.max(alpha, bestScore), score;
+            Minimax.play(game, move, heuristic);
+            try {
+                score = -search(game, depth - 1, -beta, -searchedAlpha, size, ply + 1, split);
+            } catch (SearchAborted e) {
+                // abandoned for a bound from above - which may just mean this
+                // node now has a cutoff from what it has already found
+                beta = narrowBeta(beta, ply, split);
+                if (bestIsReal && bestScore >= beta) {
+                    cutoff = true;
+                    break;
+                }
+                throw e;
+            } finally {
+                Minimax.retract(game, move, heuristic);
+            }
+
+            if (score > bestScore || bestIndex < 0) {
+                bestScore = score;
+                bestIndex = i;
+                bestIsReal = score > searchedAlpha;
+            }
+            if (bestScore >= beta) {
+                cutoff = true;
+                orderer().recordCutoff(move.getRow() * size + move.getCol(), depth, depth, game.currentPlayer());
+                if (i == 0)
+                    counters.firstMoveCutoffs++;
+            }
+        }
+
+        if (splitting && !cutoff) {
+            var point = new SplitPoint(split, ply, alpha, beta, moves, bestScore, bestIndex, bestIsReal);
+            searchSplit(game, point, depth, size);
+            synchronized (point) {
+                bestScore = point.best;
+                bestIndex = point.bestIndex;
+                bestIsReal = point.bestIsReal;
+            }
+            cutoff = bestScore >= beta;
+            if (!cutoff) {
+                // the helpers may have given up because of a bound from above
+                alpha = narrowAlpha(alpha, ply, split);
+                beta = narrowBeta(beta, ply, split);
+                cutoff = bestIsReal && bestScore >= beta;
+                if (!cutoff && (point.aborted || alpha >= beta))
+                    throw ABORTED;
+            }
+        }
+        if (cutoff)
+            counters().betaCutoffs++;
+
+        // the window may have narrowed since the last move was searched, and
+        // the score is only exact within the window it was searched with
+        alpha = narrowAlpha(alpha, ply, split);
+        beta = narrowBeta(beta, ply, split);
+        var bestMove = moves.get(bestIndex);
+        if (ply == 0)
+            rootMove = bestMove;
+        int bound = bestScore <= alpha ? TranspositionTable.UPPER
+                : bestScore >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        table.store(key, depth, bound, bestScore, Minimax.toCanonical(game, size, bestMove.getRow() * size + bestMove.getCol(),
+                symmetric));
+        return bestScore;
+    }
+
+    // whether the time budget is used up (checking the clock every so often)
+    private boolean outOfTime(Counters counters) {
+        if ((counters.nodes & (CLOCK_CHECK_INTERVAL - 1)) == 0 && System.nanoTime() - deadline > 0)
+            timeUp = true;
+        return timeUp;
+    }
+
+    // Searches the younger brothers of a split point: a helper task per spare
+    // thread (each on its own copy of the game), with this thread helping too
+    private void searchSplit(Game game, SplitPoint point, int depth, int size) {
+        int helpers = Math.min(point.moves.size() - point.bestIndex - 1, pool.getParallelism());
+        Helper forked = null;
+        for (int h = 1; h < helpers; h++) {
+            // copies are copy-on-write, so this is cheap until the task runs
+            forked = new Helper(game.copy(), point, depth, size, forked);
+            forked.fork();
+        }
+        help(game, point, depth, size);
+        for (var helper = forked; helper != null; helper = helper.next)
+            helper.join();
+    }
+
+    // searches moves of a split point, until there are none left, it has a
+    // cutoff, or it is abandoned
+    private void help(Game game, SplitPoint point, int depth, int size) {
+        int index;
+        while (!point.aborted && !point.cutoff() && (index = point.nextMove()) >= 0) {
+            var move = point.moves.get(index);
+            long alpha = point.alpha, score;
+            Minimax.play(game, move, heuristic);
+            try {
+                score = -search(game, depth - 1, -point.beta, -alpha, size, point.ply + 1, point);
+            } catch (SearchAborted e) {
+                // (a cutoff here needs no more than stopping - anything else
+                // came from further up, so the whole split point is given up)
+                if (!point.cutoff())
+                    point.aborted = true;
+                return;
+            } finally {
+                Minimax.retract(game, move, heuristic);
+            }
+            point.update(score, index, alpha);
+        }
+    }
+
+    // a helper for a split point, linked to the one forked before it
+    private class Helper extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Game game;
+        private final SplitPoint point;
+        private final int depth, size;
+        final Helper next;
+
+        Helper(Game game, SplitPoint point, int depth, int size, Helper next) {
+            this.game = game;
+            this.point = point;
+            this.depth = depth;
+            this.size = size;
+            this.next = next;
+        }
+
+        @Override
+        protected void compute() {
+            help(game, point, depth, size);
+        }
+    }
+
+    @Override
+    public Move getCurrentPlayerMove(Game game) {
+        var event = new MoveSearchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        Game search = game.copy();
+        int size = search.getGrid().getSize();
+        table.newSearch();
+        searchSize = size;
+        searchNumber++;
+
+        Move best = null;
+        int depthReached = 0;
+        if (budgetNanos == 0) {
+            search(search, maxDepth, size);
+            best = rootMove;
+            depthReached = maxDepth;
+        } else {
+            deadline = start + budgetNanos;
+            timeUp = false;
+            // iterative deepening, as in Minimax - each iteration's best moves
+            // are in the table for the next one to search first
+            int emptyCells = search.getMoves().size();
+            for (int depth = 1; depth <= Math.min(maxDepth, emptyCells); depth++) {
+                long score;
+                try {
+                    score = search(search, depth, size);
+                } catch (SearchAborted e) {
+                    break; // out of time (search is left mid-move, but it's our own copy)
+                }
+                best = rootMove;
+                depthReached = depth;
+                if (score == Minimax.WIN || score == Minimax.LOSS || System.nanoTime() - deadline > 0)
+                    break;
+            }
+            // not even depth 1 finished - any move will do
+            if (best == null)
+                best = game.getMoves().iterator().next();
+        }
+
+        // every task has been joined, so all threads' counts are visible here
+        long nodes = 0, leaves = 0, heuristicCalls = 0, heuristicNanos = 0;
+        long expandedNodes = 0, betaCutoffs = 0, firstMoveCutoffs = 0;
+        for (var counted : allCounters)
+            if (counted.searchNumber == searchNumber) {
+                nodes += counted.nodes;
+                leaves += counted.leaves;
+                heuristicCalls += counted.heuristicCalls;
+                heuristicNanos += counted.heuristicNanos;
+                expandedNodes += counted.expandedNodes;
+                betaCutoffs += counted.betaCutoffs;
+                firstMoveCutoffs += counted.firstMoveCutoffs;
+            }
+        lastStats = new SearchStats(nodes, leaves, heuristicCalls, heuristicNanos, expandedNodes, betaCutoffs,
+                firstMoveCutoffs, depthReached, System.nanoTime() - start);
+        event.record(this, game, best, lastStats);
+        return best;
+    }
+
+    // searches the root to depth, returning its score and setting rootMove
+    // (the root is searched like any other node, with no table cutoff)
+    private long search(Game game, int depth, int size) {
+        return pool.invoke(ForkJoinTask.adapt(() -> search(game, depth, Minimax.LOSS, Minimax.WIN, size, 0, null)));
+    }
+
+    // stops the worker threads (the AI can't be used afterwards)
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
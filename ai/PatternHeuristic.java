@@ -0,0 +1,267 @@
+package ai;
+
+import java.util.Arrays;
+
+import game.*;
+
+// Scores a position from the local shape of the pieces: every cell's 3x3
+// neighbourhood is looked up in a table of pattern scores, and the scores are
+// added up. The patterns recognised (see patternScore) are
+//   - pieces joined side by side
+//   - "bridges": two diagonal pieces with both cells between them empty, so
+//     the opponent can't stop them joining - and bridges that the opponent has
+//     half blocked, or cut
+//   - edge templates: a piece on an edge, or one step away with the cell in
+//     between free
+// Each 3x3 neighbourhood is numbered in base 3 (one digit per cell: empty,
+// white or black), and there is one table per way the neighbourhood can hang
+// off the edges of the grid (the 9 of a normal board, plus the extra ones of
+// 1x1 and 2x2 boards) - so a lookup needs no bounds checks or rotations.
+// The tables are generated once, when the class is loaded
+//
+// The pattern numbers and the total are kept up to date as moves are made
+// and undone (a move changes at most 9 neighbourhoods), so a score is just a
+// sign flip. Like IncrementalMinPiecesHeuristic, state is kept per thread and
+// rebuilt from scratch when it doesn't match the game being scored
+//
+// Patterns alone only see the local picture, so they can be added on top of
+// another heuristic (which is then kept up to date too, if it is incremental)
+public class PatternHeuristic implements IncrementalHeuristic {
+    // pattern weights (per pair of pieces, or per piece for edges)
+    private static final int ADJACENT = 4, BRIDGE = 6, HALF_BRIDGE = 1, CUT = -4;
+    private static final int ON_EDGE = 3, NEAR_EDGE = 2;
+
+    private static final int CELLS = 9; // in a 3x3 neighbourhood
+    private static final int PATTERNS = 19683; // 3^9
+    private static final int[] POWERS = { 1, 3, 9, 27, 81, 243, 729, 2187, 6561 };
+
+    // edge masks: which sides of a neighbourhood fall off the grid
+    private static final int OFF_TOP = 1, OFF_BOTTOM = 2, OFF_LEFT = 4, OFF_RIGHT = 8;
+
+    // [edge mask][pattern] -> score for white (black's is the negation)
+    private static final int[][] TABLES = new int[16][];
+
+    static {
+        for (int mask = 0; mask < TABLES.length; mask++) {
+            TABLES[mask] = new int[PATTERNS];
+            for (int pattern = 0; pattern < PATTERNS; pattern++)
+                TABLES[mask][pattern] = patternScore(mask, pattern, 1) - patternScore(mask, pattern, 2);
+        }
+    }
+
+    private static final int NONE = PieceColour.NONE.ordinal();
+
+    private static final ThreadLocal<State> STATES = ThreadLocal.withInitial(State::new);
+
+    private final Heuristic base;
+    private final int baseWeight;
+
+    private static class State {
+        int size = -1;
+        boolean valid = false;
+        long key; // hashKey() of the position the patterns are for
+
+        int[] cells; // PieceColour ordinals
+        int[] mask; // edge mask of each cell's neighbourhood
+        int[] pattern; // pattern number of each cell's neighbourhood
+        int total; // sum of TABLES[mask[cell]][pattern[cell]]
+
+        void resize(int size) {
+            if (size == this.size)
+                return;
+            this.size = size;
+            int n = size * size;
+            cells = new int[n];
+            pattern = new int[n];
+            mask = new int[n];
+            for (int cell = 0; cell < n; cell++) {
+                int row = cell / size, col = cell % size;
+                mask[cell] = (row == 0 ? OFF_TOP : 0) | (row == size - 1 ? OFF_BOTTOM : 0)
+                        | (col == 0 ? OFF_LEFT : 0) | (col == size - 1 ? OFF_RIGHT : 0);
+            }
+        }
+    }
+
+    // patterns only
+    public PatternHeuristic() {
+        this(null, 0);
+    }
+
+    // patterns, plus base's score times baseWeight
+    public PatternHeuristic(Heuristic base, int baseWeight) {
+        if (base != null && baseWeight < 1)
+            throw new IllegalArgumentException("baseWeight must be at least 1");
+        this.base = base;
+        this.baseWeight = baseWeight;
+    }
+
+    // ----- pattern table generation -----
+
+    // Score for colour of the patterns in one neighbourhood which belong to its
+    // centre. Each pair of pieces is only counted from one of its two cells
+    // (the upper one, or the left one for pieces side by side), so that adding
+    // up every cell's neighbourhood counts each pattern once
+    static int patternScore(int mask, int pattern, int colour) {
+        int[] cells = new int[CELLS]; // position (dr + 1) * 3 + (dc + 1)
+        for (int i = 0; i < CELLS; i++)
+            cells[i] = pattern / POWERS[i] % 3;
+
+        // (off-grid cells of a real position are always empty, so patterns with
+        // pieces there never occur - scoring them as empty is harmless)
+        boolean offTop = (mask & OFF_TOP) != 0, offBottom = (mask & OFF_BOTTOM) != 0;
+        boolean offLeft = (mask & OFF_LEFT) != 0, offRight = (mask & OFF_RIGHT) != 0;
+        int score = 0;
+
+        if (cells[4] == NONE) {
+            // an empty edge cell: is there a piece one step in, which can reach
+            // the edge through it?
+            if (offTop && !offBottom && cells[7] == colour)
+                score += NEAR_EDGE;
+            if (offBottom && !offTop && cells[1] == colour)
+                score += NEAR_EDGE;
+            if (offLeft && !offRight && cells[5] == colour)
+                score += NEAR_EDGE;
+            if (offRight && !offLeft && cells[3] == colour)
+                score += NEAR_EDGE;
+            return score;
+        }
+        if (cells[4] != colour)
+            return 0;
+
+        // side by side, to the right and below
+        if (!offRight && cells[5] == colour)
+            score += ADJACENT;
+        if (!offBottom && cells[7] == colour)
+            score += ADJACENT;
+
+        // diagonally below - the two cells between are the one below, and the
+        // one beside on that side
+        if (!offBottom) {
+            if (!offLeft && cells[6] == colour)
+                score += bridge(cells[3], cells[7], colour);
+            if (!offRight && cells[8] == colour)
+                score += bridge(cells[5], cells[7], colour);
+        }
+
+        // on an edge (twice in a corner)
+        score += ON_EDGE * Integer.bitCount(mask);
+        return score;
+    }
+
+    // score of a diagonal pair's connection, given the two cells between
+    private static int bridge(int a, int b, int colour) {
+        if (a == colour || b == colour)
+            return 0; // already joined side by side (counted as ADJACENT)
+        if (a == NONE && b == NONE)
+            return BRIDGE;
+        if (a != NONE && b != NONE)
+            return CUT; // both the opponent's
+        return HALF_BRIDGE;
+    }
+
+    // ----- Heuristic -----
+
+    @Override
+    public int score(Game game) {
+        var state = STATES.get();
+        if (!state.valid || state.key != game.hashKey())
+            rebuild(state, game);
+
+        int patterns = game.currentPlayer() == PieceColour.WHITE ? state.total : -state.total;
+        return base == null ? patterns : patterns + baseWeight * base.score(game);
+    }
+
+    // the patterns are scored the same in every orientation (both diagonals,
+    // all four edges), so this is symmetric if the base heuristic is
+    @Override
+    public boolean isSymmetric() {
+        return base == null || base.isSymmetric();
+    }
+
+    @Override
+    public void moveMade(Game game, Move move) {
+        if (base instanceof IncrementalHeuristic)
+            ((IncrementalHeuristic) base).moveMade(game, move);
+
+        var state = STATES.get();
+        var mover = game.currentPlayer() == PieceColour.WHITE ? PieceColour.BLACK : PieceColour.WHITE;
+        int cell = cellOf(state, move);
+        if (cell < 0 || state.cells[cell] != NONE || otherKey(state, game, cell, mover) != state.key) {
+            state.valid = false;
+            return;
+        }
+        change(state, cell, mover.ordinal());
+        state.key = game.hashKey();
+    }
+
+    @Override
+    public void moveUndone(Game game, Move move) {
+        if (base instanceof IncrementalHeuristic)
+            ((IncrementalHeuristic) base).moveUndone(game, move);
+
+        // unlike the distance fields, patterns can be taken back exactly without
+        // any record of the move
+        var state = STATES.get();
+        var mover = game.currentPlayer();
+        int cell = cellOf(state, move);
+        if (cell < 0 || state.cells[cell] != mover.ordinal() || otherKey(state, game, cell, mover) != state.key) {
+            state.valid = false;
+            return;
+        }
+        change(state, cell, NONE);
+        state.key = game.hashKey();
+    }
+
+    // row * size + col, or -1 if the state is invalid or for another size of grid
+    private static int cellOf(State state, Move move) {
+        if (!state.valid || move.getRow() >= state.size || move.getCol() >= state.size) {
+            state.valid = false;
+            return -1;
+        }
+        return move.getRow() * state.size + move.getCol();
+    }
+
+    // key of game's position with mover's piece at cell added (or removed) and
+    // the other player to move
+    private static long otherKey(State state, Game game, int cell, PieceColour mover) {
+        return game.hashKey() ^ Zobrist.key(state.size, cell, mover) ^ Zobrist.BLACK_TO_MOVE;
+    }
+
+    private static void rebuild(State state, Game game) {
+        var grid = game.getGrid();
+        int size = grid.getSize();
+        state.resize(size);
+        Arrays.fill(state.cells, NONE);
+        Arrays.fill(state.pattern, 0);
+        state.total = 0;
+        for (int cell = 0; cell < size * size; cell++)
+            state.total += TABLES[state.mask[cell]][0];
+
+        for (int row = 0; row < size; row++)
+            for (int col = 0; col < size; col++) {
+                var piece = grid.getPiece(row, col);
+                if (piece != PieceColour.NONE)
+                    change(state, row * size + col, piece.ordinal());
+            }
+        state.key = game.hashKey();
+        state.valid = true;
+    }
+
+    // sets cell to colour, updating the 9 neighbourhoods it belongs to
+    private static void change(State state, int cell, int colour) {
+        int size = state.size, row = cell / size, col = cell % size;
+        int delta = colour - state.cells[cell];
+        state.cells[cell] = colour;
+        for (int dr = -1; dr <= 1; dr++)
+            for (int dc = -1; dc <= 1; dc++) {
+                int r = row - dr, c = col - dc; // centre which sees cell at (dr, dc)
+                if (r < 0 || r >= size || c < 0 || c >= size)
+                    continue;
+                int centre = r * size + c;
+                int[] table = TABLES[state.mask[centre]];
+                state.total -= table[state.pattern[centre]];
+                state.pattern[centre] += delta * POWERS[(dr + 1) * 3 + (dc + 1)];
+                state.total += table[state.pattern[centre]];
+            }
+    }
+}
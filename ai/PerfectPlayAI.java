@@ -0,0 +1,26 @@
+package ai;
+
+import game.*;
+
+// Plays perfectly on a solved board size, with no search at all: every move
+// keeps the best value the position has (see SolvedPositions)
+// It can't lose a won game or a drawn one - but in a lost game it just plays
+// on, with no idea which moves a weaker opponent might get wrong
+public class PerfectPlayAI implements AI {
+    private final SolvedPositions positions;
+
+    public PerfectPlayAI(SolvedPositions positions) {
+        this.positions = positions;
+    }
+
+    // Throws IllegalArgumentException for a board size (or position) which
+    // isn't in the solved positions
+    @Override
+    public Move getCurrentPlayerMove(Game game) {
+        var move = positions.bestMove(game);
+        if (move == null)
+            throw new IllegalArgumentException("Position is not in the solved positions for board size "
+                    + positions.getBoardSize());
+        return move;
+    }
+}
@@ -1,6 +1,8 @@
 package ai;
 
 import game.*;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 public class PlayVsAI {
@@ -9,10 +11,42 @@ public class PlayVsAI {
         // Increasing the size of the board will make the AI slower
         Game game = new GameImpl(5);
 
-        // Decrease the depth to make the AI faster, but less powerful
-        // Increase the depth to make the AI slower, but more powerful
-        // The AI gets very slow very quickly as the depth increases!
-        AI ai = new Minimax(5, new MinPiecesHeuristic());
+        // The AI thinks for a fixed time per move, searching as deep as it can
+        // Decrease the time to make the AI faster, but less powerful
+        // Increase the time to make the AI slower, but more powerful
+        // (new Minimax(depth, heuristic) searches to a fixed depth instead - but
+        // the AI gets very slow very quickly as the depth increases!)
+        // On bigger boards (say 8x8 and up), new MonteCarlo(1000) plays better -
+        // it doesn't need a heuristic, and uses every processor core
+        Heuristic heuristic = new FastMinPiecesHeuristic();
+        Minimax ai = Minimax.withTimeBudget(1000, heuristic);
+
+        // Run with --cache to save searches to a file (16 MB, one per board size
+        // and heuristic), so the opening moves (which are slowest) only have to
+        // be worked out the first time
+        PositionCache cache = null;
+        if (Arrays.asList(args).contains("--cache")) {
+            int size = game.getGrid().getSize();
+            String name = PositionCache.heuristicName(heuristic);
+            try {
+                cache = PositionCache.open(Path.of("positions-" + size + "-" + heuristic.getClass().getSimpleName()
+                        + ".cache"), size, name, 20);
+                ai.setPositionCache(cache);
+            } catch (IOException | IllegalArgumentException e) {
+                System.out.println("Not using the position cache: " + e.getMessage());
+            }
+        }
+
+        // The first few moves come straight from an opening book, if one has
+        // been built for this board size (run java ai.OpeningBook to make them)
+        AI player = ai;
+        try {
+            var book = new BookAI(Path.of("."), ai);
+            book.open(game.getGrid().getSize());
+            player = book;
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Not using the opening book: " + e.getMessage());
+        }
 
         // Change this to PieceColour.BLACK if you want to play as white
         PieceColour aiColour = PieceColour.WHITE;
@@ -25,7 +59,7 @@ public class PlayVsAI {
             System.out.println(game.getGrid());
             if (game.currentPlayer() == aiColour) {
                 // AI turn
-                Move move = ai.getCurrentPlayerMove(game);
+                Move move = player.getCurrentPlayerMove(game);
                 System.out.println("AI move: " + move);
                 game.makeMove(move);
             } else {
@@ -64,6 +98,14 @@ public class PlayVsAI {
             System.out.println("The winner is you!");
         else
             System.out.println("It's a draw!");
+
+        if (cache != null) {
+            try {
+                cache.close();
+            } catch (IOException e) {
+                System.out.println("Could not save the position cache: " + e.getMessage());
+            }
+        }
     }
     
 }
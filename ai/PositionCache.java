@@ -0,0 +1,193 @@
+package ai;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A table of searched positions kept in a memory-mapped file, so that the
+// results of one game's search (mostly the expensive opening plies, which are
+// the same in every game on a given board size) are still there for the next
+// game, or the next run of the program
+//
+// File layout (little-endian):
+//   header, HEADER_BYTES long: magic, version, board size, log2 of record count,
+//     (4 bytes unused), 64-bit hash of the heuristic's name
+//   records, 16 bytes each: key ^ entry, entry
+// where entry is packed exactly like a TranspositionTable entry (so decode it
+// with TranspositionTable.score/depth/bound/move), with canonical keys and
+// moves (see Game.canonicalKey)
+//
+// As with TranspositionTable, each key is stored XORed with its entry, so a
+// reader never needs a lock - a record which is being rewritten just fails to
+// match. Any number of processes can open the file read-only at once; only one
+// should open it for writing. Scores depend on the heuristic used (and with
+// a heuristic which isn't symmetric, keys are plain Game.hashKey()s instead),
+// so each file is for one heuristic and board size - the header records both,
+// and opening it for anything else is rejected
+public class PositionCache implements Closeable {
+    private static final long MAGIC = 0x4843_4143_4449_5247L; // "GRIDCACH"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 32, RECORD_BYTES = 16;
+
+    // records are addressed with an int, and the whole file must fit in one map
+    private static final int MAX_SIZE_LOG2 = 26;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final boolean writable;
+    private final int boardSize;
+    private final int mask;
+
+    private PositionCache(FileChannel channel, MappedByteBuffer buffer, boolean writable, int boardSize,
+            int sizeLog2) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.writable = writable;
+        this.boardSize = boardSize;
+        this.mask = (1 << sizeLog2) - 1;
+    }
+
+    // Opens (or creates) a cache file for reading and writing
+    // heuristic names the heuristic whose scores are stored, and any settings
+    // which change them (e.g. heuristicName(h) for a heuristic with none)
+    // A new file gets 2^sizeLog2 records; an existing file keeps its own size
+    // Throws IllegalArgumentException if the file is for another board size or
+    // heuristic
+    public static PositionCache open(Path path, int boardSize, String heuristic, int sizeLog2) throws IOException {
+        if (sizeLog2 < 1 || sizeLog2 > MAX_SIZE_LOG2)
+            throw new IllegalArgumentException(
+                    String.format("sizeLog2 must be in range [1, %d] (received %d)", MAX_SIZE_LOG2, sizeLog2));
+
+        var channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE);
+        try {
+            if (channel.size() == 0) {
+                var buffer = map(channel, FileChannel.MapMode.READ_WRITE, HEADER_BYTES + ((long) RECORD_BYTES << sizeLog2));
+                buffer.putLong(0, MAGIC);
+                buffer.putInt(8, VERSION);
+                buffer.putInt(12, boardSize);
+                buffer.putInt(16, sizeLog2);
+                buffer.putLong(24, hash(heuristic));
+                return new PositionCache(channel, buffer, true, boardSize, sizeLog2);
+            }
+            return openExisting(channel, FileChannel.MapMode.READ_WRITE, boardSize, heuristic);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Opens an existing cache file read-only - safe to do from several
+    // processes at once, even while another process is writing to it
+    public static PositionCache openReadOnly(Path path, int boardSize, String heuristic) throws IOException {
+        var channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return openExisting(channel, FileChannel.MapMode.READ_ONLY, boardSize, heuristic);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long bytes) throws IOException {
+        var buffer = channel.map(mode, 0, bytes);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static PositionCache openExisting(FileChannel channel, FileChannel.MapMode mode, int boardSize,
+            String heuristic) throws IOException {
+        if (channel.size() < HEADER_BYTES)
+            throw new IOException("Not a position cache file (too short)");
+
+        var header = map(channel, FileChannel.MapMode.READ_ONLY, HEADER_BYTES);
+        if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION)
+            throw new IOException("Not a position cache file (bad magic or version)");
+
+        int sizeLog2 = header.getInt(16);
+        if (sizeLog2 < 1 || sizeLog2 > MAX_SIZE_LOG2
+                || channel.size() != HEADER_BYTES + ((long) RECORD_BYTES << sizeLog2))
+            throw new IOException("Position cache file is truncated or corrupt");
+        if (header.getInt(12) != boardSize)
+            throw new IllegalArgumentException(String.format("Position cache is for board size %d (expected %d)",
+                    header.getInt(12), boardSize));
+        if (header.getLong(24) != hash(heuristic))
+            throw new IllegalArgumentException("Position cache is for a different heuristic (expected " + heuristic + ")");
+
+        var buffer = map(channel, mode, channel.size());
+        return new PositionCache(channel, buffer, mode == FileChannel.MapMode.READ_WRITE, boardSize, sizeLog2);
+    }
+
+    // the name of a heuristic with no settings of its own, for open()
+    public static String heuristicName(Heuristic heuristic) {
+        return heuristic.getClass().getName();
+    }
+
+    // 64-bit FNV-1a hash of a heuristic's name, for the header
+    private static long hash(String heuristic) {
+        long hash = 0xcbf2_9ce4_8422_2325L;
+        for (int i = 0; i < heuristic.length(); i++) {
+            hash ^= heuristic.charAt(i);
+            hash *= 0x100_0000_01b3L;
+        }
+        return hash;
+    }
+
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    public boolean isWritable() {
+        return writable;
+    }
+
+    private int offset(long key) {
+        return HEADER_BYTES + ((int) key & mask) * RECORD_BYTES;
+    }
+
+    // looks up a position (by canonical key), returning
+    // TranspositionTable.NO_ENTRY if it isn't stored
+    public long probe(long key) {
+        int offset = offset(key);
+        long entry = buffer.getLong(offset + 8);
+        if (entry != TranspositionTable.NO_ENTRY && (buffer.getLong(offset) ^ entry) == key)
+            return entry;
+        return TranspositionTable.NO_ENTRY;
+    }
+
+    // records a search result, keeping whichever of it and the existing record
+    // searched deeper (does nothing if the cache is read-only)
+    public void store(long key, int depth, int bound, long score, int move) {
+        if (!writable)
+            return;
+
+        int offset = offset(key);
+        long old = buffer.getLong(offset + 8);
+        boolean sameKey = old != TranspositionTable.NO_ENTRY && (buffer.getLong(offset) ^ old) == key;
+        if (!sameKey && old != TranspositionTable.NO_ENTRY && TranspositionTable.depth(old) > depth)
+            return;
+        if (sameKey && TranspositionTable.depth(old) > depth)
+            return;
+
+        long entry = TranspositionTable.pack(0, depth, bound, score, move);
+        buffer.putLong(offset + 8, entry);
+        buffer.putLong(offset, key ^ entry);
+    }
+
+    // writes any changes out to disk
+    public void flush() {
+        if (writable)
+            buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
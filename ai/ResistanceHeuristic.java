@@ -0,0 +1,262 @@
+package ai;
+
+import game.*;
+
+// Scores a position by treating the grid as an electrical circuit
+// For each player, every cell is a resistor: their own pieces conduct almost
+// perfectly, empty cells have resistance 1, and the opponent's pieces don't
+// conduct at all. The effective resistance between two opposite edges then
+// measures how well connected the player is - unlike MinPiecesHeuristic's
+// single shortest path, it also counts how many different ways there are to
+// connect, and how hard they are to block all at once
+// The score is the log of the ratio of the two players' resistances (taking
+// each player's better direction), so it is 0 for an even position and
+// antisymmetric between the players
+//
+// Each resistance means solving a sparse linear system (Kirchhoff's laws)
+// for the voltage at every cell. This is done with the conjugate gradient
+// method, preconditioned by the diagonal, over flat primitive arrays. Every
+// solve starts from the same guess (a linear drop from edge to edge) and runs
+// to a tight tolerance, and the board is first turned to its canonical
+// orientation (see Game.canonicalSymmetry), so the score depends on nothing
+// but the position and is exactly the same for all its rotations and
+// reflections - as the transposition table and position cache need it to be
+public class ResistanceHeuristic implements Heuristic {
+    // resistance of a cell holding the player's own piece
+    private static final double OWN_RESISTANCE = 0.01;
+
+    // score = SCALE * ln(opponent resistance / player resistance), clamped
+    private static final double SCALE = 100;
+    private static final int MAX_SCORE = 1_000_000;
+
+    // no current at all (one player is completely cut off) - stands for an
+    // infinite resistance while keeping the logarithm finite
+    private static final double MIN_CURRENT = 1e-9;
+
+    // the solve stops when the residual is this small relative to the source
+    // current, or after at most MAX_ITERATIONS_FACTOR * cells iterations (it
+    // needs far fewer - this only guards against rounding keeping it going)
+    private static final double TOLERANCE = 1e-10;
+    private static final int MAX_ITERATIONS_FACTOR = 4;
+
+    private static final ThreadLocal<Solver> SOLVERS = ThreadLocal.withInitial(Solver::new);
+
+    private static final int NONE = PieceColour.NONE.ordinal();
+
+    @Override
+    public int score(Game game) {
+        var grid = game.getGrid();
+        int size = grid.getSize();
+        var solver = SOLVERS.get();
+        solver.resize(size);
+
+        grid.copyCells(solver.read);
+        int[] canonical = Symmetry.permutations(size)[game.canonicalSymmetry()];
+        for (int cell = 0; cell < solver.n; cell++)
+            solver.cells[canonical[cell]] = solver.read[cell];
+
+        int player = game.currentPlayer().ordinal(), opponent = 3 - player;
+        solver.setColour(player);
+        double playerResistance = Math.min(solver.resistance(true), solver.resistance(false));
+        solver.setColour(opponent);
+        double opponentResistance = Math.min(solver.resistance(true), solver.resistance(false));
+        double score = SCALE * Math.log(opponentResistance / playerResistance);
+        return (int) Math.max(-MAX_SCORE, Math.min(MAX_SCORE, Math.round(score)));
+    }
+
+    // the board is always solved in its canonical orientation
+    @Override
+    public boolean isSymmetric() {
+        return true;
+    }
+
+    // buffers for one thread (nothing outlives a resistance() call)
+    private static class Solver {
+        int size = -1, n;
+        byte[] read; // PieceColour ordinals, row * size + col, as in the game
+        byte[] cells; // the same turned to the canonical orientation
+
+        // the system for one colour and direction: each cell's resistance,
+        // conductance from each cell to the cell to its right and below (these
+        // three are the same in both directions), to the two edges (source at
+        // voltage 1, sink at 0), and the diagonal (sum of a cell's conductances)
+        double[] resistance, right, down, source, sink, diagonal;
+
+        // conjugate gradient vectors
+        double[] voltage, residual, preconditioned, direction, product;
+
+        // cells connected to an edge, and the queue for finding them
+        boolean[] connected;
+        int[] queue;
+
+        void resize(int size) {
+            if (size == this.size)
+                return;
+            this.size = size;
+            n = size * size;
+            read = new byte[n];
+            cells = new byte[n];
+            resistance = new double[n];
+            right = new double[n];
+            down = new double[n];
+            source = new double[n];
+            sink = new double[n];
+            diagonal = new double[n];
+            voltage = new double[n];
+            residual = new double[n];
+            preconditioned = new double[n];
+            direction = new double[n];
+            product = new double[n];
+            connected = new boolean[n];
+            queue = new int[n];
+        }
+
+        double cellResistance(int cell, int colour) {
+            int piece = cells[cell];
+            return piece == colour ? OWN_RESISTANCE : piece == NONE ? 1 : Double.POSITIVE_INFINITY;
+        }
+
+        // conductance between two cells in series, each counted by half
+        static double conductance(double a, double b) {
+            return a == Double.POSITIVE_INFINITY || b == Double.POSITIVE_INFINITY ? 0 : 2 / (a + b);
+        }
+
+        // sets up the conductances between cells for colour
+        void setColour(int colour) {
+            for (int cell = 0; cell < n; cell++)
+                resistance[cell] = cellResistance(cell, colour);
+            for (int cell = 0; cell < n; cell++) {
+                int row = cell / size, col = cell % size;
+                right[cell] = col < size - 1 ? conductance(resistance[cell], resistance[cell + 1]) : 0;
+                down[cell] = row < size - 1 ? conductance(resistance[cell], resistance[cell + size]) : 0;
+            }
+        }
+
+        // effective resistance for the colour last set up, from top to bottom
+        // (vertical) or left to right
+        double resistance(boolean vertical) {
+            for (int cell = 0; cell < n; cell++) {
+                int along = vertical ? cell / size : cell % size;
+                // an edge is a perfect conductor joined to half of each cell beside it
+                double r = resistance[cell], edge = r == Double.POSITIVE_INFINITY ? 0 : 2 / r;
+                source[cell] = along == 0 ? edge : 0;
+                sink[cell] = along == size - 1 ? edge : 0;
+            }
+
+            // a group of cells touching neither edge has no fixed voltage (its
+            // rows of the matrix are singular) and carries no current, so it's
+            // left out, like a wall
+            findConnected();
+            for (int cell = 0; cell < n; cell++) {
+                int along = vertical ? cell / size : cell % size;
+                if (connected[cell]) {
+                    double sum = right[cell] + down[cell] + source[cell] + sink[cell];
+                    if (cell % size > 0)
+                        sum += right[cell - 1];
+                    if (cell >= size)
+                        sum += down[cell - size];
+                    diagonal[cell] = sum;
+                    // a linear drop from source to sink is the first guess
+                    voltage[cell] = 1 - (along + 0.5) / size;
+                } else {
+                    diagonal[cell] = 1;
+                    voltage[cell] = 0;
+                }
+            }
+
+            solve(voltage);
+
+            double current = 0;
+            for (int cell = 0; cell < n; cell++)
+                current += source[cell] * (1 - voltage[cell]);
+            return 1 / Math.max(current, MIN_CURRENT);
+        }
+
+        // marks the cells joined to either edge by cells which conduct
+        void findConnected() {
+            int head = 0, tail = 0;
+            for (int cell = 0; cell < n; cell++) {
+                connected[cell] = source[cell] > 0 || sink[cell] > 0;
+                if (connected[cell])
+                    queue[tail++] = cell;
+            }
+            while (head < tail) {
+                int cell = queue[head++];
+                if (right[cell] > 0 && !connected[cell + 1]) {
+                    connected[cell + 1] = true;
+                    queue[tail++] = cell + 1;
+                }
+                if (down[cell] > 0 && !connected[cell + size]) {
+                    connected[cell + size] = true;
+                    queue[tail++] = cell + size;
+                }
+                if (cell % size > 0 && right[cell - 1] > 0 && !connected[cell - 1]) {
+                    connected[cell - 1] = true;
+                    queue[tail++] = cell - 1;
+                }
+                if (cell >= size && down[cell - size] > 0 && !connected[cell - size]) {
+                    connected[cell - size] = true;
+                    queue[tail++] = cell - size;
+                }
+            }
+        }
+
+        // result = A * x, where A is the conductance (Laplacian) matrix
+        // (cells left out have no conductances, so they only keep their own 1)
+        void multiply(double[] x, double[] result) {
+            for (int row = 0, cell = 0; row < size; row++)
+                for (int col = 0; col < size; col++, cell++) {
+                    double sum = diagonal[cell] * x[cell];
+                    if (col < size - 1)
+                        sum -= right[cell] * x[cell + 1];
+                    if (col > 0)
+                        sum -= right[cell - 1] * x[cell - 1];
+                    if (row < size - 1)
+                        sum -= down[cell] * x[cell + size];
+                    if (row > 0)
+                        sum -= down[cell - size] * x[cell - size];
+                    result[cell] = sum;
+                }
+        }
+
+        // Solves A x = b (b being the current fed in from the source edge) by
+        // Jacobi-preconditioned conjugate gradient, starting from x as it is
+        void solve(double[] x) {
+            multiply(x, product);
+            double rz = 0, norm = 0, target = 0;
+            for (int cell = 0; cell < n; cell++) {
+                target += source[cell] * source[cell];
+                residual[cell] = source[cell] - product[cell];
+                preconditioned[cell] = residual[cell] / diagonal[cell];
+                direction[cell] = preconditioned[cell];
+                rz += residual[cell] * preconditioned[cell];
+                norm += residual[cell] * residual[cell];
+            }
+            double limit = TOLERANCE * TOLERANCE * target;
+
+            for (int iteration = 0; iteration < MAX_ITERATIONS_FACTOR * n && norm > limit; iteration++) {
+                multiply(direction, product);
+                double dAd = 0;
+                for (int cell = 0; cell < n; cell++)
+                    dAd += direction[cell] * product[cell];
+                if (dAd <= 0)
+                    break; // only possible once the residual has vanished
+                double alpha = rz / dAd;
+
+                double nextRz = 0;
+                norm = 0;
+                for (int cell = 0; cell < n; cell++) {
+                    x[cell] += alpha * direction[cell];
+                    residual[cell] -= alpha * product[cell];
+                    preconditioned[cell] = residual[cell] / diagonal[cell];
+                    nextRz += residual[cell] * preconditioned[cell];
+                    norm += residual[cell] * residual[cell];
+                }
+                double beta = nextRz / rz;
+                rz = nextRz;
+                for (int cell = 0; cell < n; cell++)
+                    direction[cell] = preconditioned[cell] + beta * direction[cell];
+            }
+        }
+    }
+}
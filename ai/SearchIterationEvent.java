@@ -0,0 +1,27 @@
+package ai;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Java Flight Recorder event for one completed iteration of iterative
+// deepening in Minimax (one per move when searching to a fixed depth)
+@Name("ai.SearchIteration")
+@Label("Search Iteration")
+@Category({ "Game AI" })
+@Description("Minimax searching the root to one depth")
+public class SearchIterationEvent extends Event {
+    @Label("Depth")
+    int depth;
+
+    @Label("Score")
+    long score;
+
+    @Label("Best Move")
+    String move;
+
+    @Label("Nodes")
+    long nodes;
+}
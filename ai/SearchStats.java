@@ -0,0 +1,101 @@
+package ai;
+
+// What an AI did while choosing one move (see InstrumentedAI)
+// The counters are kept as plain longs during the search (per thread, for the
+// multi-threaded AIs) and only gathered into one of these at the end, so they
+// are cheap enough to leave on all the time
+public class SearchStats {
+    public static final SearchStats EMPTY = new SearchStats(0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+    private final long nodes;
+    private final long leaves;
+    private final long heuristicCalls;
+    private final long heuristicNanos;
+    private final long expandedNodes;
+    private final long betaCutoffs;
+    private final long firstMoveCutoffs;
+    private final int depth;
+    private final long elapsedNanos;
+
+    // nodes: positions visited
+    // leaves: positions scored without looking further (by the heuristic, a
+    //   finished game, or a playout)
+    // heuristicCalls, heuristicNanos: positions the heuristic scored, and the
+    //   time it took (which may be estimated from a sample of the calls)
+    // expandedNodes: positions whose moves were searched
+    // betaCutoffs: expanded nodes whose search stopped early on a beta cutoff,
+    //   and firstMoveCutoffs: those where it was the first move that did it
+    // depth: deepest search completed (for Monte Carlo, the deepest tree node)
+    // elapsedNanos: time taken to choose the move
+    public SearchStats(long nodes, long leaves, long heuristicCalls, long heuristicNanos, long expandedNodes,
+            long betaCutoffs, long firstMoveCutoffs, int depth, long elapsedNanos) {
+        this.nodes = nodes;
+        this.leaves = leaves;
+        this.heuristicCalls = heuristicCalls;
+        this.heuristicNanos = heuristicNanos;
+        this.expandedNodes = expandedNodes;
+        this.betaCutoffs = betaCutoffs;
+        this.firstMoveCutoffs = firstMoveCutoffs;
+        this.depth = depth;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getLeaves() {
+        return leaves;
+    }
+
+    public long getHeuristicCalls() {
+        return heuristicCalls;
+    }
+
+    public long getHeuristicNanos() {
+        return heuristicNanos;
+    }
+
+    public long getExpandedNodes() {
+        return expandedNodes;
+    }
+
+    public long getBetaCutoffs() {
+        return betaCutoffs;
+    }
+
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    // fraction of expanded nodes which ended in a beta cutoff
+    public double getCutoffRate() {
+        return expandedNodes == 0 ? 0 : (double) betaCutoffs / expandedNodes;
+    }
+
+    // fraction of beta cutoffs caused by the first move searched - close to 1
+    // means the move ordering is doing its job
+    public double getFirstMoveCutoffRatio() {
+        return betaCutoffs == 0 ? 0 : (double) firstMoveCutoffs / betaCutoffs;
+    }
+
+    public double getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("depth %d, %d nodes (%.0f/s), %d leaves, %d heuristic calls (%.1f ms), "
+                + "%.1f%% cutoffs (%.1f%% on the first move), %.1f ms", depth, nodes, getNodesPerSecond(), leaves,
+                heuristicCalls, heuristicNanos / 1e6, 100 * getCutoffRate(), 100 * getFirstMoveCutoffRatio(),
+                elapsedNanos / 1e6);
+    }
+}
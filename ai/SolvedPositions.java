@@ -0,0 +1,263 @@
+package ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import game.*;
+
+// The exact game-theoretic value, and a best move, of every position which can
+// be reached on a small board (up to 4x4), worked out by searching the whole
+// game tree
+//
+// A position is indexed by reading its cells as a base-3 number (cell i, as a
+// PieceColour ordinal, is digit i - whose move it is follows from the piece
+// counts), after turning it to its canonical symmetry (see Game.canonicalKey),
+// so only one position of each symmetric group is searched and stored
+// Each index has a 2-bit value (for the player to move) and a 4-bit best move
+// (as a canonical row * size + col), so a whole 4x4 game fits in 32MB - 5x5
+// would need 3^25 indices, which is out of reach
+//
+// File layout (little-endian):
+//   header, HEADER_BYTES long: magic, version, board size, number of indices
+//   values, 4 per byte (index i in bits 2 * (i % 4) of byte i / 4)
+//   moves, 2 per byte (index i in bits 4 * (i % 2) of byte i / 2)
+// The file is memory-mapped read-only, so opening it reads nothing up front
+public class SolvedPositions {
+    private static final long MAGIC = 0x564c_4f53_4449_5247L; // "GRIDSOLV"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    public static final int MAX_SIZE = 4;
+
+    // values, for the player to move (UNKNOWN for positions which can't be
+    // reached, or which aren't the canonical one of their group)
+    public static final int UNKNOWN = 0, WIN = 1, LOSS = 2, DRAW = 3;
+
+    private final ByteBuffer data;
+    private final int size, indices, movesOffset;
+    private final int[][] powers; // [transform][cell] -> 3^(where the transform moves cell)
+
+    private SolvedPositions(ByteBuffer data, int size) {
+        this.data = data;
+        this.size = size;
+        this.indices = indices(size);
+        this.movesOffset = HEADER_BYTES + (indices + 3) / 4;
+
+        int[][] permutations = Symmetry.permutations(size);
+        powers = new int[Symmetry.COUNT][size * size];
+        for (int t = 0; t < Symmetry.COUNT; t++)
+            for (int cell = 0; cell < size * size; cell++) {
+                int power = 1;
+                for (int i = 0; i < permutations[t][cell]; i++)
+                    power *= 3;
+                powers[t][cell] = power;
+            }
+    }
+
+    private static int indices(int size) {
+        int indices = 1;
+        for (int i = 0; i < size * size; i++)
+            indices *= 3;
+        return indices;
+    }
+
+    private static int bytes(int indices) {
+        return HEADER_BYTES + (indices + 3) / 4 + (indices + 1) / 2;
+    }
+
+    public int getBoardSize() {
+        return size;
+    }
+
+    // ----- solving -----
+
+    // Solves every position reachable on a board of the given size
+    public static SolvedPositions solve(int size) {
+        if (size < 1 || size > MAX_SIZE)
+            throw new IllegalArgumentException(
+                    String.format("size must be in range [1, %d] (received %d)", MAX_SIZE, size));
+
+        int indices = indices(size);
+        var data = ByteBuffer.allocate(bytes(indices)).order(ByteOrder.LITTLE_ENDIAN);
+        data.putLong(0, MAGIC).putInt(8, VERSION).putInt(12, size).putInt(16, indices);
+        var positions = new SolvedPositions(data, size);
+        new Solver(positions).solve(new GameImpl(size), 0);
+        return positions;
+    }
+
+    // a depth-first search of the whole tree, remembering every position it
+    // solves - a position is solved once, however many ways it can be reached
+    private static class Solver {
+        final SolvedPositions positions;
+        final int size;
+        final byte[] cells; // kept up to date as moves are made and undone
+        final IntMoveList[] plyMoves;
+
+        Solver(SolvedPositions positions) {
+            this.positions = positions;
+            this.size = positions.size;
+            this.cells = new byte[size * size];
+            this.plyMoves = new IntMoveList[size * size + 1];
+            for (int i = 0; i < plyMoves.length; i++)
+                plyMoves[i] = new IntMoveList(size * size);
+        }
+
+        // the value of game for the player to move
+        int solve(GameImpl game, int ply) {
+            int transform = game.canonicalSymmetry();
+            int index = positions.index(cells, transform);
+            int value = positions.value(index);
+            if (value != UNKNOWN)
+                return value;
+
+            if (game.isOver()) {
+                // the player who just moved has either won, or filled the board
+                value = game.winner() == PieceColour.NONE ? DRAW : LOSS;
+                positions.setValue(index, value);
+                return value;
+            }
+
+            byte colour = (byte) game.currentPlayer().ordinal();
+            var moves = plyMoves[ply];
+            game.getMoves(moves);
+            int best = -1;
+            value = LOSS;
+            // (no cutoff once a win is found - the other moves lead to positions
+            // which must be solved too)
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                game.makeMove(move);
+                cells[move] = colour;
+                int child = solve(game, ply + 1);
+                cells[move] = 0;
+                game.undoMove();
+
+                int mine = child == LOSS ? WIN : child == WIN ? LOSS : DRAW;
+                if (best < 0 || rank(mine) > rank(value)) {
+                    value = mine;
+                    best = move;
+                }
+            }
+            positions.setValue(index, value);
+            positions.setMove(index, Symmetry.apply(transform, size, best));
+            return value;
+        }
+
+        private static int rank(int value) {
+            return value == WIN ? 2 : value == DRAW ? 1 : 0;
+        }
+    }
+
+    // ----- reading and writing -----
+
+    // the index of a position, turned by transform
+    private int index(byte[] cells, int transform) {
+        int[] power = powers[transform];
+        int index = 0;
+        for (int cell = 0; cell < cells.length; cell++)
+            index += cells[cell] * power[cell];
+        return index;
+    }
+
+    private int index(Game game) {
+        var cells = new byte[size * size];
+        game.getGrid().copyCells(cells);
+        return index(cells, game.canonicalSymmetry());
+    }
+
+    private int value(int index) {
+        return data.get(HEADER_BYTES + index / 4) >>> 2 * (index % 4) & 3;
+    }
+
+    private void setValue(int index, int value) {
+        int offset = HEADER_BYTES + index / 4, shift = 2 * (index % 4);
+        data.put(offset, (byte) (data.get(offset) & ~(3 << shift) | value << shift));
+    }
+
+    private int move(int index) {
+        return data.get(movesOffset + index / 2) >>> 4 * (index % 2) & 0xf;
+    }
+
+    private void setMove(int index, int move) {
+        int offset = movesOffset + index / 2, shift = 4 * (index % 2);
+        data.put(offset, (byte) (data.get(offset) & ~(0xf << shift) | move << shift));
+    }
+
+    // The value of game for the player to move (WIN, LOSS or DRAW), or UNKNOWN
+    // if it can't be reached in a game (or is for another board size)
+    public int value(Game game) {
+        if (game.getGrid().getSize() != size)
+            return UNKNOWN;
+        return value(index(game));
+    }
+
+    // A move which keeps the best value for the player to move, or null if the
+    // game is over or the position is unknown
+    public Move bestMove(Game game) {
+        if (game.getGrid().getSize() != size || game.isOver())
+            return null;
+        int index = index(game);
+        if (value(index) == UNKNOWN)
+            return null;
+        int move = Symmetry.apply(Symmetry.inverse(game.canonicalSymmetry()), size, move(index));
+        return MoveImpl.ofCell(move, size);
+    }
+
+    public void write(Path path) throws IOException {
+        var bytes = new byte[data.capacity()];
+        data.get(0, bytes);
+        Files.write(path, bytes);
+    }
+
+    // Opens a file written by write
+    // Throws IllegalArgumentException if it is for another board size
+    public static SolvedPositions open(Path path, int boardSize) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES)
+                throw new IOException("Not a solved positions file (too short)");
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getLong(0) != MAGIC || buffer.getInt(8) != VERSION)
+                throw new IOException("Not a solved positions file (bad magic or version)");
+            int size = buffer.getInt(12);
+            if (size < 1 || size > MAX_SIZE || buffer.getInt(16) != indices(size)
+                    || channel.size() != bytes(indices(size)))
+                throw new IOException("Solved positions file is truncated or corrupt");
+            if (size != boardSize)
+                throw new IllegalArgumentException(
+                        String.format("Solved positions are for board size %d (expected %d)", size, boardSize));
+            return new SolvedPositions(buffer, size);
+        }
+    }
+
+    // the usual file name for a board size's positions
+    public static Path fileName(Path directory, int boardSize) {
+        return directory.resolve("solved-" + boardSize + ".bin");
+    }
+
+    // Solves board sizes and writes them out
+    // Usage: java ai.SolvedPositions [minSize-maxSize] [directory]
+    public static void main(String[] args) throws IOException {
+        String[] sizes = (args.length > 0 ? args[0] : "3-4").split("-");
+        int minSize = Integer.parseInt(sizes[0]);
+        int maxSize = Integer.parseInt(sizes[sizes.length - 1]);
+        Path directory = Path.of(args.length > 1 ? args[1] : ".");
+
+        for (int size = minSize; size <= maxSize; size++) {
+            long start = System.nanoTime();
+            var positions = solve(size);
+            var path = fileName(directory, size);
+            positions.write(path);
+            int value = positions.value(new GameImpl(size));
+            System.out.printf("%dx%d: first player %s, solved in %.1f s -> %s%n", size, size,
+                    value == WIN ? "wins" : value == LOSS ? "loses" : "draws", (System.nanoTime() - start) / 1e9,
+                    path);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package ai;
+
+import java.util.Arrays;
+
+// A fixed-size hash table of previously searched positions
+// The table just stores whatever key it is given: Minimax and ParallelMinimax
+// pass Game.canonicalKey() when the heuristic is symmetric, so all rotations
+// and reflections of a position share one entry, and Game.hashKey() otherwise
+// (see Minimax.key). Moves stored with canonical keys are in the canonical
+// orientation, and must be mapped back with Minimax.fromCanonical
+// Since pieces are never captured, the same position is reached through many
+// different move orders - the table lets Minimax reuse the first search of a
+// position instead of repeating it
+//
+// Each entry packs the score, search depth, bound type, best move and the
+// search generation into a single long. Entries live in buckets of two slots:
+// the first keeps the deepest result (unless it is from an older search), and
+// the second is always replaced, so shallow results can't evict deep ones but
+// the table never fills up with stale entries either
+//
+// The key is stored XORed with the data, and checked again on probe(). A torn
+// or half-written entry then simply fails to match, which makes the table safe
+// to share between threads without locking
+public class TranspositionTable {
+    // bound types: EXACT scores are the true minimax value, LOWER scores failed
+    // high (the true value is >= score) and UPPER scores failed low (<= score)
+    public static final int EXACT = 1, LOWER = 2, UPPER = 3;
+
+    // returned by probe() when the position is not in the table
+    public static final long NO_ENTRY = 0;
+
+    private static final int MAX_DEPTH = 0xFF, MAX_MOVE = 0xFFFF - 1;
+
+    private final long[] checks; // key ^ data
+    private final long[] data;
+    private final int mask;
+    private int generation = 0;
+
+    // the table holds 2^sizeLog2 entries (16 bytes each)
+    public TranspositionTable(int sizeLog2) {
+        if (sizeLog2 < 1 || sizeLog2 > 30)
+            throw new IllegalArgumentException("sizeLog2 must be in range [1, 30] (received " + sizeLog2 + ")");
+
+        this.checks = new long[1 << sizeLog2];
+        this.data = new long[1 << sizeLog2];
+        this.mask = (1 << sizeLog2) - 1;
+    }
+
+    // number of entries the table can hold
+    public int capacity() {
+        return data.length;
+    }
+
+    // starts a new search - entries from earlier searches become the first to be
+    // replaced (but are still returned by probe until then)
+    public void newSearch() {
+        generation = (generation + 1) & 0x3F;
+    }
+
+    // forgets every entry
+    public void clear() {
+        Arrays.fill(checks, 0);
+        Arrays.fill(data, 0);
+    }
+
+    // layout, from the lowest bit: bound (2), generation (6), depth (8),
+    // move + 1 (16, 0 = no move), score (32)
+    // (package-private, as PositionCache stores entries in the same format)
+    static long pack(int generation, int depth, int bound, long score, int move) {
+        return bound
+                | (long) generation << 2
+                | (long) Math.min(depth, MAX_DEPTH) << 8
+                | (long) (move < 0 || move > MAX_MOVE ? 0 : move + 1) << 16
+                | (long) (int) score << 32;
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry & 0x3);
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> 8) & 0xFF;
+    }
+
+    // best move as row * size + col, or -1 if none was stored
+    public static int move(long entry) {
+        return ((int) (entry >>> 16) & 0xFFFF) - 1;
+    }
+
+    public static long score(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    private static int generation(long entry) {
+        return (int) (entry >>> 2) & 0x3F;
+    }
+
+    // looks up a position, returning NO_ENTRY if it isn't stored
+    // use the static bound/depth/move/score methods to unpack the result
+    public long probe(long key) {
+        int slot = (int) key & mask & ~1;
+        for (int i = slot; i <= slot + 1 && i < data.length; i++) {
+            long entry = data[i];
+            if (entry != NO_ENTRY && (checks[i] ^ entry) == key)
+                return entry;
+        }
+        return NO_ENTRY;
+    }
+
+    // records the result of searching a position to the given depth
+    // score must fit in an int; move is row * size + col, or -1 for none
+    public void store(long key, int depth, int bound, long score, int move) {
+        int slot = (int) key & mask & ~1;
+        long entry = pack(generation, depth, bound, score, move);
+
+        // keep the old best move if this search didn't find one
+        long old = data[slot];
+        boolean sameKey = old != NO_ENTRY && (checks[slot] ^ old) == key;
+        if (!sameKey && slot + 1 < data.length) {
+            // depth-preferred slot is taken by another position - only replace it
+            // if the new result is at least as deep, or the old one is stale
+            if (old != NO_ENTRY && generation(old) == generation && depth(old) > depth)
+                slot++;
+            old = data[slot];
+            sameKey = old != NO_ENTRY && (checks[slot] ^ old) == key;
+        }
+        if (sameKey && move < 0 && move(old) >= 0)
+            entry |= (long) (move(old) + 1) << 16;
+
+        data[slot] = entry;
+        checks[slot] = key ^ entry;
+    }
+}
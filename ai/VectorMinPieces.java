@@ -0,0 +1,192 @@
+package ai;
+
+import java.util.Arrays;
+import java.util.List;
+
+import game.*;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// The vector path of BatchMinPiecesHeuristic: the same bit-sliced distances,
+// but every cell has one vector of longs per property instead of one long, so
+// a single OR/AND of two vectors works on 64 boards per long lane - 256 boards
+// with AVX2, 512 with AVX-512, which covers every child of an 11x11 or 15x15
+// position in one batch
+//
+// This is the only class using jdk.incubator.vector, so that
+// BatchMinPiecesHeuristic still loads (and falls back to plain longs) when
+// the JVM was started without --add-modules jdk.incubator.vector
+final class VectorMinPieces {
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+    private static final int WORDS = SPECIES.length(), BOARDS = WORDS * Long.SIZE;
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private VectorMinPieces() {
+    }
+
+    // whether vectors are any wider than the single long of the fallback
+    static boolean isWorthwhile() {
+        return WORDS > 1;
+    }
+
+    private static class Buffers {
+        int size = -1;
+        byte[] cells; // PieceColour ordinals, row * size + col
+        // per cell, WORDS longs from cell * WORDS, with one bit per board
+        long[] own, empty, reach, next;
+        long[] lanes = new long[WORDS], words = new long[WORDS];
+        int[] vertical = new int[BOARDS], horizontal = new int[BOARDS];
+
+        void resize(int size) {
+            if (size == this.size)
+                return;
+            this.size = size;
+            int n = size * size;
+            cells = new byte[n];
+            own = new long[n * WORDS];
+            empty = new long[n * WORDS];
+            reach = new long[n * WORDS];
+            next = new long[n * WORDS];
+        }
+    }
+
+    static void scoreChildren(Game game, List<Move> moves, int[] scores) {
+        var grid = game.getGrid();
+        int size = grid.getSize();
+        var buffers = BUFFERS.get();
+        buffers.resize(size);
+        grid.copyCells(buffers.cells);
+
+        // the children are scored for the player to move in them
+        var player = game.currentPlayer() == PieceColour.WHITE ? PieceColour.BLACK : PieceColour.WHITE;
+        for (int first = 0; first < moves.size(); first += BOARDS)
+            scoreBoards(buffers, player.ordinal(), moves, first, Math.min(BOARDS, moves.size() - first), scores);
+    }
+
+    // scores moves first .. first + count - 1, one board per bit
+    private static void scoreBoards(Buffers buffers, int player, List<Move> moves, int first, int count,
+            int[] scores) {
+        int size = buffers.size, n = size * size;
+        long[] lanes = buffers.lanes;
+        for (int w = 0; w < WORDS; w++) {
+            int boards = Math.max(0, Math.min(Long.SIZE, count - w * Long.SIZE));
+            lanes[w] = boards == Long.SIZE ? -1L : (1L << boards) - 1;
+        }
+        long[] own = buffers.own, empty = buffers.empty;
+        for (int cell = 0; cell < n; cell++) {
+            int piece = buffers.cells[cell];
+            for (int w = 0; w < WORDS; w++) {
+                own[cell * WORDS + w] = piece == player ? lanes[w] : 0;
+                empty[cell * WORDS + w] = piece == PieceColour.NONE.ordinal() ? lanes[w] : 0;
+            }
+        }
+        // each board's move is an opponent piece for the player scored
+        for (int board = 0; board < count; board++) {
+            var move = moves.get(first + board);
+            empty[(move.getRow() * size + move.getCol()) * WORDS + board / Long.SIZE] &= ~(1L << board % Long.SIZE);
+        }
+
+        distances(buffers, true, buffers.vertical);
+        distances(buffers, false, buffers.horizontal);
+        for (int board = 0; board < count; board++)
+            scores[first + board] = -Math.min(buffers.vertical[board], buffers.horizontal[board]);
+    }
+
+    // distance from the top edge to the bottom (vertical) or left to right, for
+    // every board in buffers.lanes
+    private static void distances(Buffers buffers, boolean vertical, int[] result) {
+        int size = buffers.size, n = size * size;
+        long[] own = buffers.own, empty = buffers.empty, reach = buffers.reach, next = buffers.next;
+        var lanes = LongVector.fromArray(SPECIES, buffers.lanes, 0);
+        var zero = LongVector.zero(SPECIES);
+
+        // level 0: own pieces on the start edge
+        Arrays.fill(reach, 0);
+        for (int i = 0; i < size; i++) {
+            int cell = vertical ? i : i * size;
+            System.arraycopy(own, cell * WORDS, reach, cell * WORDS, WORDS);
+        }
+        close(buffers);
+
+        var done = zero;
+        for (int level = 0;; level++) {
+            var found = zero;
+            for (int i = 0; i < size; i++) {
+                int cell = vertical ? (size - 1) * size + i : i * size + size - 1;
+                found = found.or(LongVector.fromArray(SPECIES, reach, cell * WORDS));
+            }
+            record(buffers, found.and(done.not()), level, result);
+            done = done.or(found);
+            if (done.eq(lanes).allTrue() || level >= n)
+                break;
+
+            // level + 1: one step out of every empty cell reached, and every
+            // start edge cell (which costs at most 1 to begin from)
+            boolean grew = false;
+            for (int cell = 0; cell < n; cell++) {
+                int row = cell / size, col = cell % size;
+                var step = zero;
+                if (row > 0) step = step.or(stepFrom(reach, empty, cell - size));
+                if (row < size - 1) step = step.or(stepFrom(reach, empty, cell + size));
+                if (col > 0) step = step.or(stepFrom(reach, empty, cell - 1));
+                if (col < size - 1) step = step.or(stepFrom(reach, empty, cell + 1));
+                if ((vertical ? row : col) == 0)
+                    step = step.or(lanes);
+                var reached = LongVector.fromArray(SPECIES, reach, cell * WORDS);
+                var grown = reached.or(step.and(lanes));
+                grown.intoArray(next, cell * WORDS);
+                grew |= grown.compare(VectorOperators.NE, reached).anyTrue();
+            }
+            System.arraycopy(next, 0, reach, 0, n * WORDS);
+            if (!grew)
+                break; // nothing new can be reached - the rest never connect
+            close(buffers);
+        }
+
+        record(buffers, lanes.and(done.not()), n, result);
+    }
+
+    // reach & through at cell
+    private static LongVector stepFrom(long[] reach, long[] through, int cell) {
+        return LongVector.fromArray(SPECIES, reach, cell * WORDS)
+                .and(LongVector.fromArray(SPECIES, through, cell * WORDS));
+    }
+
+    // sets result to distance for every board with its bit set in boards
+    private static void record(Buffers buffers, LongVector boards, int distance, int[] result) {
+        long[] words = buffers.words;
+        boards.intoArray(words, 0);
+        for (int w = 0; w < WORDS; w++)
+            for (long bits = words[w]; bits != 0; bits &= bits - 1)
+                result[w * Long.SIZE + Long.numberOfTrailingZeros(bits)] = distance;
+    }
+
+    // adds every cell one free step (out of an own piece) from reach, until
+    // nothing changes, as BatchMinPiecesHeuristic.close does
+    private static void close(Buffers buffers) {
+        int size = buffers.size, n = size * size;
+        long[] own = buffers.own, reach = buffers.reach;
+        var zero = LongVector.zero(SPECIES);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int pass = 0; pass < 2; pass++)
+                for (int i = 0; i < n; i++) {
+                    int cell = pass == 0 ? i : n - 1 - i;
+                    int row = cell / size, col = cell % size;
+                    var step = zero;
+                    if (row > 0) step = step.or(stepFrom(reach, own, cell - size));
+                    if (row < size - 1) step = step.or(stepFrom(reach, own, cell + size));
+                    if (col > 0) step = step.or(stepFrom(reach, own, cell - 1));
+                    if (col < size - 1) step = step.or(stepFrom(reach, own, cell + 1));
+                    var reached = LongVector.fromArray(SPECIES, reach, cell * WORDS);
+                    if (step.and(reached.not()).compare(VectorOperators.NE, 0).anyTrue()) {
+                        reached.or(step).intoArray(reach, cell * WORDS);
+                        changed = true;
+                    }
+                }
+        }
+    }
+}
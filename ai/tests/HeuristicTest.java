@@ -0,0 +1,292 @@
+package ai.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import ai.*;
+import game.*;
+import game.tests.Test;
+
+public class HeuristicTest extends Test {
+    public static void main(String[] args) {
+        // 1. FastMinPiecesHeuristic gives the same score as MinPiecesHeuristic
+        System.out.println("\n---- Testing FastMinPiecesHeuristic against MinPiecesHeuristic");
+
+        Heuristic slow = new MinPiecesHeuristic();
+        Heuristic fast = new FastMinPiecesHeuristic();
+
+        // an empty board needs a whole row or column
+        expect(-5, fast.score(new GameImpl(5)));
+        expect(-1, fast.score(new GameImpl(1)));
+
+        var random = new Random(2005);
+        int mismatches = 0;
+        for (int size : new int[] { 1, 2, 3, 4, 5, 7, 9, 11, 65 }) {
+            for (int i = 0; i < (size > 11 ? 3 : 100); i++) {
+                // compare after every move of a random game, including after it
+                // has been won (as the search can score those positions too)
+                var game = new GameImpl(size);
+                while (true) {
+                    if (slow.score(game) != fast.score(game))
+                        mismatches++;
+                    var moves = new ArrayList<>(game.getMoves());
+                    if (moves.isEmpty())
+                        break;
+                    game.makeMove(moves.get(random.nextInt(moves.size())));
+                }
+            }
+        }
+        expect(0, mismatches);
+
+        // the same heuristic can be used by several threads at once
+        var failed = new boolean[1];
+        var threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long seed = t;
+            threads[t] = new Thread(() -> {
+                var threadRandom = new Random(seed);
+                for (int i = 0; i < 200; i++) {
+                    var game = new GameImpl(2 + threadRandom.nextInt(8));
+                    int moves = threadRandom.nextInt(game.getMoves().size());
+                    for (int m = 0; m < moves; m++) {
+                        var list = new ArrayList<>(game.getMoves());
+                        game.makeMove(list.get(threadRandom.nextInt(list.size())));
+                    }
+                    if (slow.score(game) != fast.score(game))
+                        failed[0] = true;
+                }
+            });
+            threads[t].start();
+        }
+        for (var thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        expect(false, failed[0]);
+
+        // 2. IncrementalMinPiecesHeuristic follows moves and undos exactly
+        System.out.println("\n---- Testing IncrementalMinPiecesHeuristic against FastMinPiecesHeuristic");
+
+        var incremental = new IncrementalMinPiecesHeuristic();
+        mismatches = 0;
+        for (int size : new int[] { 1, 2, 3, 4, 5, 7, 9, 11, 19 }) {
+            for (int i = 0; i < (size > 11 ? 10 : 60); i++) {
+                // a random walk of moves and undos, as a search would make - with
+                // the odd notification left out, which must force a rebuild
+                var game = new GameImpl(size);
+                var history = new ArrayList<Move>();
+                int made = 0;
+                for (int step = 0; step < 4 * size * size; step++) {
+                    var moves = new ArrayList<>(game.getMoves());
+                    boolean undo = made > 0 && (moves.isEmpty() || random.nextInt(3) == 0);
+                    boolean notify = random.nextInt(50) != 0;
+                    if (undo) {
+                        var move = history.remove(history.size() - 1);
+                        game.undoMove();
+                        made--;
+                        if (notify)
+                            incremental.moveUndone(game, move);
+                    } else if (!moves.isEmpty()) {
+                        var move = moves.get(random.nextInt(moves.size()));
+                        game.makeMove(move);
+                        history.add(move);
+                        made++;
+                        if (notify)
+                            incremental.moveMade(game, move);
+                    }
+                    if (incremental.score(game) != fast.score(game))
+                        mismatches++;
+                }
+            }
+        }
+        expect(0, mismatches);
+
+        // a search with it plays the same as one with MinPiecesHeuristic
+        var game = new GameImpl(5);
+        for (int i = 0; i < 4; i++) {
+            var moves = new ArrayList<>(game.getMoves());
+            game.makeMove(moves.get(random.nextInt(moves.size())));
+        }
+        var slowAI = new Minimax(3, slow);
+        var incrementalAI = new Minimax(3, incremental);
+        slowAI.setMoveOrderer(new MoveOrderer());
+        incrementalAI.setMoveOrderer(new MoveOrderer());
+        expect(slowAI.getCurrentPlayerMove(game).toString(), incrementalAI.getCurrentPlayerMove(game).toString());
+        expect(slowAI.getNodesSearched(), incrementalAI.getNodesSearched());
+
+        // 3. ResistanceHeuristic
+        System.out.println("\n---- Testing ResistanceHeuristic");
+
+        var resistance = new ResistanceHeuristic();
+        expect(0, resistance.score(new GameImpl(5))); // even position
+
+        // white has most of the left column, black is scattered
+        game = new GameImpl(5);
+        int[][] moves = { { 0, 0 }, { 4, 4 }, { 1, 0 }, { 2, 3 }, { 2, 0 } };
+        for (int[] move : moves)
+            game.makeMove(new MoveImpl(move[0], move[1]));
+        int blackScore = resistance.score(game);
+        expect(true, blackScore < 0);
+        game.makeMove(new MoveImpl(4, 3));
+        game.makeMove(new MoveImpl(3, 0)); // white now needs just one more
+        expect(true, resistance.score(game) < blackScore);
+
+        // the same position scores exactly the same whatever was solved before
+        // it, and when rotated
+        var positions = new ArrayList<GameImpl>();
+        for (int i = 0; i < 40; i++) {
+            var position = new GameImpl(6);
+            int count = random.nextInt(20);
+            for (int m = 0; m < count; m++) {
+                var list = new ArrayList<>(position.getMoves());
+                position.makeMove(list.get(random.nextInt(list.size())));
+            }
+            positions.add(position);
+        }
+        var firstScores = new int[positions.size()];
+        for (int i = 0; i < positions.size(); i++)
+            firstScores[i] = resistance.score(positions.get(i));
+        int differences = 0;
+        for (int i = positions.size() - 1; i >= 0; i--) {
+            var position = positions.get(i);
+            if (resistance.score(position) != firstScores[i])
+                differences++;
+            if (resistance.score(rotate(position)) != firstScores[i])
+                differences++;
+        }
+        expect(0, differences);
+
+        // 4. PatternHeuristic
+        System.out.println("\n---- Testing PatternHeuristic");
+
+        var patterns = new PatternHeuristic();
+        expect(0, patterns.score(new GameImpl(5)));
+        expect(0, patterns.score(new GameImpl(1)));
+
+        // white's diagonal pair is worth more as a bridge than once it is cut
+        var bridge = new GameImpl(5);
+        var cut = new GameImpl(5);
+        int[][] bridgeMoves = { { 1, 1 }, { 1, 3 }, { 2, 2 }, { 3, 1 } };
+        int[][] cutMoves = { { 1, 1 }, { 1, 2 }, { 2, 2 }, { 2, 1 } };
+        for (int i = 0; i < bridgeMoves.length; i++) {
+            bridge.makeMove(new MoveImpl(bridgeMoves[i][0], bridgeMoves[i][1]));
+            cut.makeMove(new MoveImpl(cutMoves[i][0], cutMoves[i][1]));
+        }
+        expect(true, patterns.score(bridge) > patterns.score(cut));
+
+        // scores kept up to date through moves and undos match scores worked
+        // out from scratch (on another thread, which has no state to reuse)
+        var walked = new ArrayList<Game>();
+        var walkedScores = new ArrayList<Integer>();
+        var combined = new PatternHeuristic(new IncrementalMinPiecesHeuristic(), 10);
+        for (int size : new int[] { 1, 2, 3, 4, 7, 11 }) {
+            var walk = new GameImpl(size);
+            var history = new ArrayList<Move>();
+            for (int step = 0; step < 3 * size * size; step++) {
+                var free = new ArrayList<>(walk.getMoves());
+                if (!history.isEmpty() && (free.isEmpty() || random.nextInt(3) == 0)) {
+                    var move = history.remove(history.size() - 1);
+                    walk.undoMove();
+                    combined.moveUndone(walk, move);
+                } else if (!free.isEmpty()) {
+                    var move = free.get(random.nextInt(free.size()));
+                    walk.makeMove(move);
+                    history.add(move);
+                    combined.moveMade(walk, move);
+                }
+                walked.add(walk.copy());
+                walkedScores.add(combined.score(walk));
+            }
+        }
+        var fromScratch = new ArrayList<Integer>();
+        var scratch = new Thread(() -> {
+            for (var position : walked)
+                fromScratch.add(combined.score(position));
+        });
+        scratch.start();
+        try {
+            scratch.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        mismatches = 0;
+        for (int i = 0; i < walked.size(); i++)
+            if (!walkedScores.get(i).equals(fromScratch.get(i)))
+                mismatches++;
+        expect(0, mismatches);
+
+        // 5. BatchMinPiecesHeuristic
+        System.out.println("\n---- Testing BatchMinPiecesHeuristic against FastMinPiecesHeuristic");
+
+        // every child's batched score is the score of the child on its own,
+        // with the Vector API path (where available) and the plain long fallback
+        // (sizes 9 and up have more children than fit in one batch of 64)
+        mismatches = 0;
+        for (var batch : List.of(new BatchMinPiecesHeuristic(true), new BatchMinPiecesHeuristic(false))) {
+            for (int size : new int[] { 1, 2, 3, 4, 5, 7, 9, 11, 19 }) {
+                for (int i = 0; i < (size > 11 ? 5 : 30); i++) {
+                    var parent = new GameImpl(size);
+                    int count = random.nextInt(size * size);
+                    for (int m = 0; m < count && !parent.isOver(); m++) {
+                        var list = new ArrayList<>(parent.getMoves());
+                        parent.makeMove(list.get(random.nextInt(list.size())));
+                    }
+                    var children = new ArrayList<>(parent.getMoves());
+                    var scores = new int[children.size()];
+                    batch.scoreChildren(parent, children, scores);
+                    for (int c = 0; c < children.size(); c++) {
+                        parent.makeMove(children.get(c));
+                        if (scores[c] != fast.score(parent))
+                            mismatches++;
+                        parent.undoMove();
+                    }
+                }
+            }
+        }
+        expect(0, mismatches);
+
+        // a search with it plays the same, visiting the same nodes
+        game = new GameImpl(6);
+        for (int i = 0; i < 6; i++) {
+            var list = new ArrayList<>(game.getMoves());
+            game.makeMove(list.get(random.nextInt(list.size())));
+        }
+        var fastAI = new Minimax(3, fast);
+        var batchAI = new Minimax(3, new BatchMinPiecesHeuristic());
+        fastAI.setMoveOrderer(new MoveOrderer());
+        batchAI.setMoveOrderer(new MoveOrderer());
+        expect(fastAI.getCurrentPlayerMove(game).toString(), batchAI.getCurrentPlayerMove(game).toString());
+        expect(fastAI.getNodesSearched(), batchAI.getNodesSearched());
+
+        checkAllTestsPassed();
+    }
+
+    // the position rotated by 90 degrees (same pieces, same player to move)
+    static GameImpl rotate(GameImpl game) {
+        var grid = game.getGrid();
+        int size = grid.getSize();
+        var white = new ArrayList<Move>();
+        var black = new ArrayList<Move>();
+        for (int row = 0; row < size; row++)
+            for (int col = 0; col < size; col++) {
+                var piece = grid.getPiece(row, col);
+                var move = new MoveImpl(col, size - 1 - row);
+                if (piece == PieceColour.WHITE)
+                    white.add(move);
+                else if (piece == PieceColour.BLACK)
+                    black.add(move);
+            }
+        // white moves first, and has either as many pieces as black or one more
+        var rotated = new GameImpl(size);
+        for (int i = 0; i < white.size(); i++) {
+            rotated.makeMove(white.get(i));
+            if (i < black.size())
+                rotated.makeMove(black.get(i));
+        }
+        return rotated;
+    }
+}
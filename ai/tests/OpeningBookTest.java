@@ -0,0 +1,160 @@
+package ai.tests;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Random;
+
+import ai.*;
+import game.*;
+import game.tests.Test;
+
+public class OpeningBookTest extends Test {
+    public static void main(String[] args) throws IOException {
+        var directory = Files.createTempDirectory("books");
+        try {
+            run(directory);
+        } finally {
+            // (deepest first, so directories are empty by the time they're deleted)
+            try (var files = Files.walk(directory).sorted(Comparator.reverseOrder())) {
+                for (var file : (Iterable<Path>) files::iterator)
+                    Files.delete(file);
+            }
+        }
+        checkAllTestsPassed();
+    }
+
+    // plays the lowest free cell of the canonical form of the position - an AI
+    // whose moves are easy to predict from any orientation
+    static Move firstCanonicalMove(Game game) {
+        int size = game.getGrid().getSize();
+        var moves = new IntMoveList();
+        game.getMoves(moves);
+        int best = Integer.MAX_VALUE;
+        for (int i = 0; i < moves.size(); i++)
+            best = Math.min(best, Symmetry.apply(game.canonicalSymmetry(), size, moves.get(i)));
+        return MoveImpl.ofCell(Symmetry.apply(Symmetry.inverse(game.canonicalSymmetry()), size, best), size);
+    }
+
+    static void run(Path directory) throws IOException {
+        // 1. Building and reading a book
+        System.out.println("\n---- Testing OpeningBook");
+
+        int size = 4, plies = 3;
+        var path = OpeningBook.fileName(directory, size);
+        int count = OpeningBook.build(path, size, plies, () -> OpeningBookTest::firstCanonicalMove, 2);
+
+        // one position per symmetric group: the empty board, 3 first moves
+        // (corner, edge, centre), and their distinct replies
+        var canonical = new HashSet<Long>();
+        var game = new GameImpl(size);
+        canonical.add(game.canonicalKey());
+        for (var first : game.getMoves()) {
+            var afterFirst = game.copy();
+            afterFirst.makeMove(first);
+            canonical.add(afterFirst.canonicalKey());
+            for (var second : afterFirst.getMoves()) {
+                var afterSecond = afterFirst.copy();
+                afterSecond.makeMove(second);
+                canonical.add(afterSecond.canonicalKey());
+            }
+        }
+        expect(canonical.size(), count);
+
+        var book = OpeningBook.open(path, size);
+        expect(count, book.size());
+        expect(plies, book.getPlies());
+        expect(size, book.getBoardSize());
+
+        // every position in the first plies gets the move the AI played in
+        // whichever symmetric position was searched, turned to match the board
+        var random = new Random(2005);
+        int wrong = 0;
+        for (int i = 0; i < 200; i++) {
+            var position = new GameImpl(size);
+            int moves = random.nextInt(plies);
+            for (int m = 0; m < moves; m++) {
+                var list = new ArrayList<>(position.getMoves());
+                position.makeMove(list.get(random.nextInt(list.size())));
+            }
+            var move = book.lookup(position);
+            if (move == null || !move.toString().equals(firstCanonicalMove(position).toString()))
+                wrong++;
+        }
+        expect(0, wrong);
+
+        // the search depth is kept for AIs which report it
+        var searchedPath = directory.resolve("searched.bin");
+        OpeningBook.build(searchedPath, size, 1, () -> new Minimax(2, new FastMinPiecesHeuristic()), 1);
+        var searched = OpeningBook.open(searchedPath, size);
+        expect(1, searched.size());
+        expect(2, OpeningBook.depth(searched.probe(new GameImpl(size).canonicalKey())));
+
+        // positions deeper than the book aren't in it
+        game = new GameImpl(size);
+        for (int m = 0; m < plies; m++)
+            game.makeMove(new ArrayList<>(game.getMoves()).get(m));
+        expect(true, book.lookup(game) == null);
+        expect(OpeningBook.NO_ENTRY, book.probe(game.canonicalKey()));
+
+        // a book move onto an occupied cell (as a hash collision could give)
+        // isn't played, and BookAI asks the other AI instead
+        var badPath = OpeningBook.fileName(directory.resolve("bad"), size);
+        Files.createDirectories(badPath.getParent());
+        OpeningBook.build(badPath, size, 2, () -> position -> new MoveImpl(0, 0), 1);
+        var bad = OpeningBook.open(badPath, size);
+        var corner = new GameImpl(size);
+        corner.makeMove(new MoveImpl(0, 0));
+        expect(true, bad.probe(corner.canonicalKey()) != OpeningBook.NO_ENTRY);
+        expect(true, bad.lookup(corner) == null);
+        var badAI = new BookAI(badPath.getParent(), OpeningBookTest::firstCanonicalMove);
+        expect(firstCanonicalMove(corner).toString(), badAI.getCurrentPlayerMove(corner).toString());
+        expect(0L, badAI.getBookMoves());
+
+        // a book for one size can't be opened for another
+        boolean threw = false;
+        try {
+            OpeningBook.open(path, 5);
+        } catch (IllegalArgumentException e) {
+            threw = true;
+        }
+        expect(true, threw);
+
+        // 2. BookAI
+        System.out.println("\n---- Testing BookAI");
+
+        AI fallback = OpeningBookTest::firstCanonicalMove;
+        var ai = new BookAI(directory, fallback);
+        var played = new GameImpl(size);
+        while (!played.isOver())
+            played.makeMove(ai.getCurrentPlayerMove(played));
+        // the first plies moves came from the book, the rest were searched
+        expect((long) plies, ai.getBookMoves());
+
+        // a board size without a book always uses the other AI
+        var noBook = new GameImpl(3);
+        expect(fallback.getCurrentPlayerMove(noBook).toString(), ai.getCurrentPlayerMove(noBook).toString());
+        expect((long) plies, ai.getBookMoves());
+
+        // a book which can't be read is an error, not silently skipped
+        Files.write(OpeningBook.fileName(directory, 5), new byte[] { 1, 2, 3 });
+        threw = false;
+        try {
+            ai.open(5);
+        } catch (IOException e) {
+            threw = true;
+        }
+        expect(true, threw);
+        threw = false;
+        try {
+            ai.getCurrentPlayerMove(new GameImpl(5));
+        } catch (UncheckedIOException e) {
+            threw = true;
+        }
+        expect(true, threw);
+    }
+}
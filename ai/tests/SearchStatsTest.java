@@ -0,0 +1,135 @@
+package ai.tests;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Random;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+
+import ai.*;
+import game.*;
+import game.tests.Test;
+
+public class SearchStatsTest extends Test {
+    // counts which must hold together for any search
+    static void expectConsistent(SearchStats stats) {
+        expect(true, stats.getNodes() > 0);
+        expect(true, stats.getLeaves() <= stats.getNodes());
+        expect(true, stats.getExpandedNodes() <= stats.getNodes());
+        expect(true, stats.getBetaCutoffs() <= stats.getExpandedNodes() + 1);
+        expect(true, stats.getFirstMoveCutoffs() <= stats.getBetaCutoffs());
+        expect(true, stats.getElapsedNanos() > 0);
+    }
+
+    public static void main(String[] args) throws IOException {
+        var random = new Random(2005);
+        var game = new GameImpl(6);
+        for (int i = 0; i < 6; i++) {
+            var moves = new ArrayList<>(game.getMoves());
+            game.makeMove(moves.get(random.nextInt(moves.size())));
+        }
+
+        // 1. Minimax
+        System.out.println("\n---- Testing Minimax stats");
+
+        var minimax = new Minimax(3, new FastMinPiecesHeuristic());
+        expect(SearchStats.EMPTY, minimax.getLastSearchStats());
+        minimax.getCurrentPlayerMove(game);
+        var stats = minimax.getLastSearchStats();
+        expectConsistent(stats);
+        expect(minimax.getNodesSearched(), stats.getNodes());
+        expect(3, stats.getDepth());
+        expect(true, stats.getHeuristicCalls() > 0 && stats.getHeuristicCalls() <= stats.getLeaves());
+        expect(true, stats.getBetaCutoffs() > 0);
+
+        // a batch heuristic's leaves are counted the same way
+        var batched = new Minimax(3, new BatchMinPiecesHeuristic());
+        var plain = new Minimax(3, new FastMinPiecesHeuristic());
+        batched.setMoveOrderer(new MoveOrderer());
+        plain.setMoveOrderer(new MoveOrderer());
+        batched.getCurrentPlayerMove(game);
+        plain.getCurrentPlayerMove(game);
+        expect(plain.getLastSearchStats().getLeaves(), batched.getLastSearchStats().getLeaves());
+        expect(plain.getLastSearchStats().getBetaCutoffs(), batched.getLastSearchStats().getBetaCutoffs());
+
+        // iterative deepening reports the deepest iteration it finished
+        var timed = Minimax.withTimeBudget(100, new FastMinPiecesHeuristic());
+        timed.getCurrentPlayerMove(game);
+        expectConsistent(timed.getLastSearchStats());
+        expect(true, timed.getLastSearchStats().getDepth() >= 1);
+
+        // 2. ParallelMinimax
+        System.out.println("\n---- Testing ParallelMinimax stats");
+
+        var parallel = new ParallelMinimax(3, new FastMinPiecesHeuristic(), 4);
+        parallel.getCurrentPlayerMove(game);
+        expectConsistent(parallel.getLastSearchStats());
+        expect(3, parallel.getLastSearchStats().getDepth());
+        // counters start again from zero for each move
+        long firstNodes = parallel.getLastSearchStats().getNodes();
+        parallel.getCurrentPlayerMove(game);
+        expect(true, parallel.getLastSearchStats().getNodes() <= firstNodes);
+        parallel.shutdown();
+
+        // with a time budget, as for Minimax
+        var timedParallel = ParallelMinimax.withTimeBudget(100, new FastMinPiecesHeuristic(), 2);
+        var timedMove = timedParallel.getCurrentPlayerMove(game);
+        expectConsistent(timedParallel.getLastSearchStats());
+        expect(true, timedParallel.getLastSearchStats().getDepth() >= 1);
+        expect(PieceColour.NONE, game.getGrid().getPiece(timedMove.getRow(), timedMove.getCol()));
+        timedParallel.shutdown();
+
+        // 3. MonteCarlo
+        System.out.println("\n---- Testing MonteCarlo stats");
+
+        var monteCarlo = new MonteCarlo(2, 0, 500);
+        monteCarlo.getCurrentPlayerMove(game);
+        stats = monteCarlo.getLastSearchStats();
+        expectConsistent(stats);
+        expect(500L, stats.getLeaves()); // one leaf per playout
+        expect(0L, stats.getHeuristicCalls());
+        expect(true, stats.getDepth() >= 1);
+        monteCarlo.shutdown();
+
+        // 4. Flight Recorder events
+        System.out.println("\n---- Testing Flight Recorder events");
+
+        var file = Files.createTempFile("search", ".jfr");
+        try (var recording = new Recording()) {
+            recording.enable("ai.MoveSearch");
+            recording.enable("ai.SearchIteration");
+            recording.start();
+            var recorded = Minimax.withTimeBudget(100, new FastMinPiecesHeuristic());
+            recorded.setSelectiveSearch(true);
+            recorded.getCurrentPlayerMove(game);
+            recording.stop();
+            recording.dump(file);
+
+            int moveEvents = 0, iterationEvents = 0, deepest = 0;
+            long recordedNodes = -1;
+            for (var event : RecordingFile.readAllEvents(file)) {
+                String name = event.getEventType().getName();
+                if (name.equals("ai.MoveSearch")) {
+                    moveEvents++;
+                    recordedNodes = event.getLong("nodes");
+                    expect("Minimax", event.getString("ai"));
+                    expect(6, event.getInt("boardSize"));
+                } else if (name.equals("ai.SearchIteration")) {
+                    iterationEvents++;
+                    deepest = Math.max(deepest, event.getInt("depth"));
+                }
+            }
+            expect(1, moveEvents);
+            expect(recorded.getNodesSearched(), recordedNodes);
+            // one event per finished iteration
+            expect(recorded.getLastSearchStats().getDepth(), iterationEvents);
+            expect(recorded.getLastSearchStats().getDepth(), deepest);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        checkAllTestsPassed();
+    }
+}
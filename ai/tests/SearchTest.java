@@ -0,0 +1,125 @@
+package ai.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import ai.*;
+import game.*;
+import game.tests.Test;
+
+// The searches against plain negamax: whatever tables, move ordering and
+// symmetry pruning they use, a fixed-depth search must choose a move worth
+// exactly as much as the best one
+public class SearchTest extends Test {
+    static final long WIN = Integer.MAX_VALUE, LOSS = -WIN;
+
+    // plain alpha-beta negamax, with no table and no pruning of symmetric moves
+    static long negamax(Game game, Heuristic heuristic, int depth, long alpha, long beta) {
+        var winner = game.winner();
+        if (winner == game.currentPlayer()) return WIN;
+        else if (winner != PieceColour.NONE) return LOSS;
+        if (depth == 0) return heuristic.score(game);
+
+        long best = LOSS;
+        for (var move : new ArrayList<>(game.getMoves())) {
+            game.makeMove(move);
+            long score = -negamax(game, heuristic, depth - 1, -beta, -Math.max(alpha, best));
+            game.undoMove();
+            best = Math.max(best, score);
+            if (best >= beta)
+                break;
+        }
+        return best;
+    }
+
+    // the value of playing move, searched depth - 1 further
+    static long valueOf(Game game, Move move, Heuristic heuristic, int depth) {
+        game.makeMove(move);
+        long value = -negamax(game, heuristic, depth - 1, LOSS, WIN);
+        game.undoMove();
+        return value;
+    }
+
+    // game with symmetry t applied (see Symmetry)
+    static GameImpl transform(Game game, int t) {
+        var grid = game.getGrid();
+        int size = grid.getSize();
+        var white = new ArrayList<Integer>();
+        var black = new ArrayList<Integer>();
+        for (int cell = 0; cell < size * size; cell++) {
+            var piece = grid.getPiece(cell / size, cell % size);
+            if (piece == PieceColour.WHITE)
+                white.add(Symmetry.apply(t, size, cell));
+            else if (piece == PieceColour.BLACK)
+                black.add(Symmetry.apply(t, size, cell));
+        }
+        // white moves first, and has either as many pieces as black or one more
+        var transformed = new GameImpl(size);
+        for (int i = 0; i < white.size(); i++) {
+            transformed.makeMove((int) white.get(i));
+            if (i < black.size())
+                transformed.makeMove((int) black.get(i));
+        }
+        return transformed;
+    }
+
+    static Heuristic[] heuristics() {
+        return new Heuristic[] { new MinPiecesHeuristic(), new FastMinPiecesHeuristic(),
+                new IncrementalMinPiecesHeuristic(), new BatchMinPiecesHeuristic(), new PatternHeuristic(),
+                new PatternHeuristic(new IncrementalMinPiecesHeuristic(), 10), new ResistanceHeuristic() };
+    }
+
+    public static void main(String[] args) {
+        var random = new Random(1);
+        var positions = new ArrayList<GameImpl>();
+        positions.add(new GameImpl(5));
+        while (positions.size() < 6) {
+            var position = new GameImpl(5);
+            int count = 1 + random.nextInt(6);
+            for (int m = 0; m < count; m++) {
+                var moves = new ArrayList<>(position.getMoves());
+                position.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+            if (!position.isOver())
+                positions.add(position);
+        }
+
+        // 1. heuristics claiming to be symmetric are
+        System.out.println("\n---- Testing Heuristic.isSymmetric");
+
+        for (var heuristic : heuristics()) {
+            if (!heuristic.isSymmetric())
+                continue;
+            int differences = 0;
+            for (var position : positions)
+                for (int t = 1; t < Symmetry.COUNT; t++)
+                    if (heuristic.score(transform(position, t)) != heuristic.score(position))
+                        differences++;
+            expect(0, differences);
+        }
+        expect(true, new ResistanceHeuristic().isSymmetric());
+        expect(false, new FastMinPiecesHeuristic().isSymmetric());
+
+        // 2. Minimax and ParallelMinimax choose a best move, by negamax
+        System.out.println("\n---- Testing Minimax and ParallelMinimax against negamax");
+
+        int depth = 3;
+        for (var heuristic : heuristics()) {
+            int wrong = 0;
+            for (var position : positions) {
+                long best = negamax(position, heuristic, depth, LOSS, WIN);
+                var minimax = new Minimax(depth, heuristic);
+                minimax.setMoveOrderer(new MoveOrderer(1));
+                var parallel = new ParallelMinimax(depth, heuristic, 2);
+                for (var ai : List.<AI>of(minimax, parallel))
+                    if (valueOf(position, ai.getCurrentPlayerMove(position), heuristic, depth) != best)
+                        wrong++;
+                parallel.shutdown();
+            }
+            expect(0, wrong);
+        }
+
+        checkAllTestsPassed();
+    }
+}
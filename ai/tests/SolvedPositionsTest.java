@@ -0,0 +1,161 @@
+package ai.tests;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Random;
+
+import ai.*;
+import game.*;
+import game.tests.Test;
+
+public class SolvedPositionsTest extends Test {
+    // the value for the player to move, by searching the whole tree (no memory,
+    // no symmetry - slow, but nothing to get wrong)
+    static int bruteForce(Game game) {
+        if (game.isOver())
+            return game.winner() == PieceColour.NONE ? SolvedPositions.DRAW : SolvedPositions.LOSS;
+        boolean draw = false;
+        for (var move : new ArrayList<>(game.getMoves())) {
+            game.makeMove(move);
+            int child = bruteForce(game);
+            game.undoMove();
+            if (child == SolvedPositions.LOSS)
+                return SolvedPositions.WIN;
+            if (child == SolvedPositions.DRAW)
+                draw = true;
+        }
+        return draw ? SolvedPositions.DRAW : SolvedPositions.LOSS;
+    }
+
+    public static void main(String[] args) throws IOException {
+        // 1. Values
+        System.out.println("\n---- Testing SolvedPositions values");
+
+        // on a 1x1 board the first move connects everything
+        expect(SolvedPositions.WIN, SolvedPositions.solve(1).value(new GameImpl(1)));
+
+        var solved = SolvedPositions.solve(3);
+        var random = new Random(2005);
+        int wrong = 0, unknown = 0;
+        for (int i = 0; i < 300; i++) {
+            var game = new GameImpl(3);
+            int moves = random.nextInt(10);
+            for (int m = 0; m < moves && !game.isOver(); m++) {
+                var list = new ArrayList<>(game.getMoves());
+                game.makeMove(list.get(random.nextInt(list.size())));
+            }
+            int value = solved.value(game);
+            if (value == SolvedPositions.UNKNOWN)
+                unknown++;
+            else if (value != bruteForce(game))
+                wrong++;
+        }
+        expect(0, unknown);
+        expect(0, wrong);
+        expect(bruteForce(new GameImpl(3)), solved.value(new GameImpl(3)));
+
+        // positions from another board size aren't known
+        expect(SolvedPositions.UNKNOWN, solved.value(new GameImpl(4)));
+        expect(true, solved.bestMove(new GameImpl(4)) == null);
+
+        // 2. Best moves
+        System.out.println("\n---- Testing SolvedPositions best moves");
+
+        // every best move keeps the value: it leads to a position which is
+        // (from the other player's side) the opposite, or still a draw
+        wrong = 0;
+        for (int i = 0; i < 300; i++) {
+            var game = new GameImpl(3);
+            int moves = random.nextInt(9);
+            for (int m = 0; m < moves && !game.isOver(); m++) {
+                var list = new ArrayList<>(game.getMoves());
+                game.makeMove(list.get(random.nextInt(list.size())));
+            }
+            if (game.isOver())
+                continue;
+            int value = solved.value(game);
+            game.makeMove(solved.bestMove(game));
+            int child = solved.value(game);
+            int expected = value == SolvedPositions.WIN ? SolvedPositions.LOSS
+                    : value == SolvedPositions.LOSS ? SolvedPositions.WIN : SolvedPositions.DRAW;
+            if (child != expected)
+                wrong++;
+        }
+        expect(0, wrong);
+
+        // 3. Files
+        System.out.println("\n---- Testing SolvedPositions files");
+
+        var file = Files.createTempFile("solved", ".bin");
+        try {
+            solved.write(file);
+            var loaded = SolvedPositions.open(file, 3);
+            wrong = 0;
+            for (int i = 0; i < 100; i++) {
+                var game = new GameImpl(3);
+                int moves = random.nextInt(8);
+                for (int m = 0; m < moves && !game.isOver(); m++) {
+                    var list = new ArrayList<>(game.getMoves());
+                    game.makeMove(list.get(random.nextInt(list.size())));
+                }
+                if (loaded.value(game) != solved.value(game))
+                    wrong++;
+                var move = solved.bestMove(game);
+                if (move != null && !move.toString().equals(loaded.bestMove(game).toString()))
+                    wrong++;
+            }
+            expect(0, wrong);
+
+            boolean threw = false;
+            try {
+                SolvedPositions.open(file, 4);
+            } catch (IllegalArgumentException e) {
+                threw = true;
+            }
+            expect(true, threw);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        // 4. PerfectPlayAI
+        System.out.println("\n---- Testing PerfectPlayAI");
+
+        // against random moves, it never does worse than the game's value
+        var perfect = new PerfectPlayAI(solved);
+        int worse = 0;
+        for (int i = 0; i < 200; i++) {
+            var game = new GameImpl(3);
+            var perfectColour = i % 2 == 0 ? PieceColour.WHITE : PieceColour.BLACK;
+            // the value for the perfect player, from the start
+            int value = solved.value(game);
+            if (perfectColour == PieceColour.BLACK)
+                value = value == SolvedPositions.WIN ? SolvedPositions.LOSS
+                        : value == SolvedPositions.LOSS ? SolvedPositions.WIN : value;
+            while (!game.isOver()) {
+                if (game.currentPlayer() == perfectColour)
+                    game.makeMove(perfect.getCurrentPlayerMove(game));
+                else {
+                    var list = new ArrayList<>(game.getMoves());
+                    game.makeMove(list.get(random.nextInt(list.size())));
+                }
+            }
+            var winner = game.winner();
+            if (value == SolvedPositions.WIN && winner != perfectColour)
+                worse++;
+            if (value == SolvedPositions.DRAW && winner != perfectColour && winner != PieceColour.NONE)
+                worse++;
+        }
+        expect(0, worse);
+
+        // a full depth search finds moves which are just as good
+        var minimax = new Minimax(9, new FastMinPiecesHeuristic());
+        var game = new GameImpl(3);
+        int value = solved.value(game);
+        game.makeMove(minimax.getCurrentPlayerMove(game));
+        expect(value == SolvedPositions.WIN ? SolvedPositions.LOSS
+                : value == SolvedPositions.LOSS ? SolvedPositions.WIN : SolvedPositions.DRAW, solved.value(game));
+
+        checkAllTestsPassed();
+    }
+}
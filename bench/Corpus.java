@@ -0,0 +1,56 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import game.*;
+
+// The fixed positions the JMH benchmarks run over
+// For each board size, SIZE positions from seeded random play, from the empty
+// board to about two thirds full (positions which are already won are kept
+// too - the search and heuristics see plenty of those), so results compare
+// between runs and between versions of the code
+final class Corpus {
+    static final int SIZE = 16;
+    static final long SEED = 2005;
+
+    private Corpus() {
+    }
+
+    static List<GameImpl> positions(int size) {
+        var random = new Random(SEED * 31 + size);
+        var corpus = new ArrayList<GameImpl>();
+        var moves = new IntMoveList();
+        for (int i = 0; i < SIZE; i++) {
+            var game = new GameImpl(size);
+            int count = i * 2 * size * size / (3 * SIZE);
+            for (int m = 0; m < count; m++) {
+                game.getMoves(moves);
+                if (moves.isEmpty())
+                    break;
+                game.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+            corpus.add(game);
+        }
+        return corpus;
+    }
+
+    // the corpus' grids, as a BitGrid (what GameImpl uses up to 64x64) or a GridImpl
+    static Grid[] grids(List<GameImpl> corpus, String kind) {
+        var grids = new Grid[corpus.size()];
+        for (int i = 0; i < grids.length; i++) {
+            var source = corpus.get(i).getGrid();
+            if (kind.equals("BitGrid")) {
+                grids[i] = source;
+                continue;
+            }
+            var grid = new GridImpl(source.getSize());
+            for (int row = 0; row < source.getSize(); row++)
+                for (int col = 0; col < source.getSize(); col++)
+                    grid.setPiece(row, col, source.getPiece(row, col));
+            grids[i] = grid;
+        }
+        return grids;
+    }
+}
@@ -0,0 +1,89 @@
+package bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import game.*;
+
+// GameImpl: listing moves, making them, and checking for the end of the game
+// Each invocation runs over the whole corpus, so scores are per position
+// Run with: gradle jmh -PjmhArgs=GameBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(2)
+@State(Scope.Thread)
+public class GameBenchmark {
+    @Param({ "3", "5", "7", "9", "11", "13", "15", "17", "19" })
+    int size;
+
+    List<GameImpl> corpus;
+    int[] moves; // a legal move in each position (-1 if it has none)
+    IntMoveList list;
+
+    @Setup
+    public void setup() {
+        corpus = Corpus.positions(size);
+        list = new IntMoveList(size * size);
+        moves = new int[corpus.size()];
+        for (int i = 0; i < moves.length; i++) {
+            corpus.get(i).getMoves(list);
+            moves[i] = list.isEmpty() ? -1 : list.get(list.size() / 2);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public void getMoves(Blackhole blackhole) {
+        for (var game : corpus)
+            blackhole.consume(game.getMoves());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public void getMovesIntMoveList(Blackhole blackhole) {
+        for (var game : corpus) {
+            game.getMoves(list);
+            blackhole.consume(list.size());
+        }
+    }
+
+    // a move can only be made once, so each one is undone again
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public void makeMoveUndoMove(Blackhole blackhole) {
+        for (int i = 0; i < moves.length; i++) {
+            if (moves[i] < 0)
+                continue;
+            var game = corpus.get(i);
+            game.makeMove(moves[i]);
+            blackhole.consume(game.hashKey());
+            game.undoMove();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public void isOver(Blackhole blackhole) {
+        for (var game : corpus)
+            blackhole.consume(game.isOver());
+    }
+
+    // winner() is cached until the next move, so this makes one first
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public void makeMoveWinnerUndoMove(Blackhole blackhole) {
+        for (int i = 0; i < moves.length; i++) {
+            if (moves[i] < 0)
+                continue;
+            var game = corpus.get(i);
+            game.makeMove(moves[i]);
+            blackhole.consume(game.winner());
+            game.undoMove();
+        }
+    }
+}
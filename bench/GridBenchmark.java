@@ -0,0 +1,59 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import game.*;
+
+// GridImpl against BitGrid: reading every cell, bulk reads, and copies
+// Each invocation runs over the whole corpus, so scores are per position
+// Run with: gradle jmh -PjmhArgs=GridBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(2)
+@State(Scope.Thread)
+public class GridBenchmark {
+    @Param({ "3", "5", "7", "9", "11", "13", "15", "17", "19" })
+    int size;
+
+    @Param({ "BitGrid", "GridImpl" })
+    String grid;
+
+    Grid[] grids;
+    byte[] cells;
+
+    @Setup
+    public void setup() {
+        grids = Corpus.grids(Corpus.positions(size), grid);
+        cells = new byte[size * size];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public void getPiece(Blackhole blackhole) {
+        for (var g : grids)
+            for (int row = 0; row < size; row++)
+                for (int col = 0; col < size; col++)
+                    blackhole.consume(g.getPiece(row, col));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public void copyCells(Blackhole blackhole) {
+        for (var g : grids) {
+            g.copyCells(cells);
+            blackhole.consume(cells);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public void copy(Blackhole blackhole) {
+        for (var g : grids)
+            blackhole.consume(g.copy());
+    }
+}
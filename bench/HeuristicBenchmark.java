@@ -0,0 +1,86 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ai.*;
+import game.*;
+
+// The heuristics side by side - each in its own forked JVM, so none is slowed
+// down by call sites the others have made megamorphic
+// score scores every corpus position from scratch (the positions aren't
+// related by moves, so the incremental ones get nothing to reuse); scoreChildren
+// scores every child of every position, in one batch where the heuristic can
+// (see BatchHeuristic) and one at a time otherwise
+// Run with: gradle jmh -PjmhArgs=HeuristicBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(2)
+@State(Scope.Thread)
+public class HeuristicBenchmark {
+    @Param({ "3", "5", "7", "9", "11", "13", "15", "17", "19" })
+    int size;
+
+    @Param({ "MinPieces", "FastMinPieces", "IncrementalMinPieces", "BatchMinPieces", "BatchMinPiecesFallback", "Resistance",
+            "Pattern" })
+    String heuristic;
+
+    List<GameImpl> corpus;
+    List<List<Move>> children;
+    Heuristic scorer;
+    int[] scores;
+
+    static Heuristic heuristic(String name) {
+        switch (name) {
+        case "MinPieces": return new MinPiecesHeuristic();
+        case "FastMinPieces": return new FastMinPiecesHeuristic();
+        case "IncrementalMinPieces": return new IncrementalMinPiecesHeuristic();
+        case "BatchMinPieces": return new BatchMinPiecesHeuristic();
+        case "BatchMinPiecesFallback": return new BatchMinPiecesHeuristic(false);
+        case "Resistance": return new ResistanceHeuristic();
+        case "Pattern": return new PatternHeuristic();
+        default: throw new IllegalArgumentException("Unknown heuristic " + name);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        corpus = Corpus.positions(size);
+        scorer = heuristic(heuristic);
+        children = new ArrayList<>();
+        for (var game : corpus)
+            children.add(new ArrayList<>(game.getMoves()));
+        scores = new int[size * size];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public void score(Blackhole blackhole) {
+        for (var game : corpus)
+            blackhole.consume(scorer.score(game));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public void scoreChildren(Blackhole blackhole) {
+        for (int i = 0; i < corpus.size(); i++) {
+            var game = corpus.get(i);
+            var moves = children.get(i);
+            if (scorer instanceof BatchHeuristic)
+                ((BatchHeuristic) scorer).scoreChildren(game, moves, scores);
+            else
+                for (int c = 0; c < moves.size(); c++) {
+                    game.makeMove(moves.get(c));
+                    scores[c] = scorer.score(game);
+                    game.undoMove();
+                }
+            blackhole.consume(scores);
+        }
+    }
+}
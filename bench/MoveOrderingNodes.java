@@ -0,0 +1,45 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import ai.*;
+import game.*;
+
+// Compares how many nodes Minimax visits with the old move ordering (random
+// shuffle, table move first) against MoveOrderer's killer/history/path ordering
+// Usage: java bench.MoveOrderingNodes [size] [depth] [positions]
+// Both orderings search the same seeded positions with fresh tables, so the
+// node counts are reproducible run to run
+public class MoveOrderingNodes {
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int positions = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        var random = new Random(11);
+        var corpus = new ArrayList<Game>();
+        for (int i = 0; i < positions; i++)
+            corpus.add(ParallelSpeedup.randomPosition(size, 2 + random.nextInt(size), random));
+
+        System.out.printf("size %d, depth %d, %d positions%n", size, depth, positions);
+        System.out.printf("%10s %14s %14s %8s%n", "position", "shuffled", "ordered", "ratio");
+
+        long totalBefore = 0, totalAfter = 0;
+        for (int i = 0; i < corpus.size(); i++) {
+            var before = new Minimax(depth, new FastMinPiecesHeuristic(), new TranspositionTable(18));
+            before.setMoveOrderer(MoveOrderer.shuffled(i));
+            before.getCurrentPlayerMove(corpus.get(i));
+
+            var after = new Minimax(depth, new FastMinPiecesHeuristic(), new TranspositionTable(18));
+            after.setMoveOrderer(new MoveOrderer(i));
+            after.getCurrentPlayerMove(corpus.get(i));
+
+            totalBefore += before.getNodesSearched();
+            totalAfter += after.getNodesSearched();
+            System.out.printf("%10d %14d %14d %8.2f%n", i, before.getNodesSearched(), after.getNodesSearched(),
+                    (double) before.getNodesSearched() / after.getNodesSearched());
+        }
+        System.out.printf("%10s %14d %14d %8.2f%n", "total", totalBefore, totalAfter, (double) totalBefore / totalAfter);
+    }
+}
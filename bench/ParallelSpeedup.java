@@ -0,0 +1,61 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import ai.*;
+import game.*;
+
+// Measures how much faster ParallelMinimax finds a move with more threads
+// Usage: java bench.ParallelSpeedup [size] [depth] [positions]
+// Every thread count is timed on the same seeded set of opening positions,
+// each with a fresh transposition table so no run benefits from another
+public class ParallelSpeedup {
+    // a position reached by playing the given number of random moves
+    static Game randomPosition(int size, int moves, Random random) {
+        Game game = new GameImpl(size);
+        for (int i = 0; i < moves && !game.isOver(); i++) {
+            var options = new ArrayList<>(game.getMoves());
+            game.makeMove(options.get(random.nextInt(options.size())));
+        }
+        return game;
+    }
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int positions = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+        var random = new Random(10);
+        var corpus = new ArrayList<Game>();
+        for (int i = 0; i < positions; i++)
+            corpus.add(randomPosition(size, 2 + random.nextInt(6), random));
+
+        var heuristic = new FastMinPiecesHeuristic();
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        System.out.printf("size %d, depth %d, %d positions, up to %d threads%n", size, depth, positions, maxThreads);
+        System.out.printf("%8s %12s %10s %10s%n", "threads", "ms/move", "speedup", "per core");
+
+        // warm up the JIT on the serial and parallel paths before timing
+        new Minimax(depth, heuristic).getCurrentPlayerMove(corpus.get(0));
+        var warmup = new ParallelMinimax(depth, heuristic, maxThreads);
+        warmup.getCurrentPlayerMove(corpus.get(0));
+        warmup.shutdown();
+
+        double serialMillis = 0;
+        for (int threads = 1; threads <= maxThreads; threads = threads < maxThreads ? Math.min(threads * 2, maxThreads) : threads + 1) {
+            var ai = new ParallelMinimax(depth, heuristic, threads, new TranspositionTable(20));
+            long start = System.nanoTime();
+            for (Game game : corpus) {
+                ai.getCurrentPlayerMove(game);
+            }
+            double millis = (System.nanoTime() - start) / 1e6 / positions;
+            ai.shutdown();
+
+            if (threads == 1)
+                serialMillis = millis;
+            double speedup = serialMillis / millis;
+            System.out.printf("%8d %12.1f %10.2f %10.2f%n", threads, millis, speedup, speedup / threads);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import game.*;
+
+// PathFinder on GridImpl (the generic search) and BitGrid (bit-parallel)
+// Each invocation checks both colours in every corpus position, so scores
+// are per position
+// Run with: gradle jmh -PjmhArgs=PathFinderBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(2)
+@State(Scope.Thread)
+public class PathFinderBenchmark {
+    @Param({ "3", "5", "7", "9", "11", "13", "15", "17", "19" })
+    int size;
+
+    @Param({ "BitGrid", "GridImpl" })
+    String grid;
+
+    Grid[] grids;
+
+    @Setup
+    public void setup() {
+        grids = Corpus.grids(Corpus.positions(size), grid);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public void topToBottom(Blackhole blackhole) {
+        for (var g : grids) {
+            blackhole.consume(PathFinder.topToBottom(g, PieceColour.WHITE));
+            blackhole.consume(PathFinder.topToBottom(g, PieceColour.BLACK));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public void leftToRight(Blackhole blackhole) {
+        for (var g : grids) {
+            blackhole.consume(PathFinder.leftToRight(g, PieceColour.WHITE));
+            blackhole.consume(PathFinder.leftToRight(g, PieceColour.BLACK));
+        }
+    }
+}
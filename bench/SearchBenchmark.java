@@ -0,0 +1,50 @@
+package bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ai.*;
+import game.*;
+
+// A fixed-depth Minimax move for every corpus position, with a fresh AI (and
+// so an empty table) each time and deterministic move ordering, so every
+// invocation does exactly the same work
+// Run with: gradle jmh -PjmhArgs=SearchBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(2)
+@State(Scope.Thread)
+public class SearchBenchmark {
+    @Param({ "3", "5", "7", "9", "11", "13", "15", "17", "19" })
+    int size;
+
+    @Param({ "2" })
+    int depth;
+
+    @Param({ "FastMinPieces" })
+    String heuristic;
+
+    List<GameImpl> corpus;
+
+    @Setup
+    public void setup() {
+        corpus = Corpus.positions(size);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public void getCurrentPlayerMove(Blackhole blackhole) {
+        for (var game : corpus) {
+            if (game.isOver())
+                continue;
+            var ai = new Minimax(depth, HeuristicBenchmark.heuristic(heuristic), new TranspositionTable(14));
+            ai.setMoveOrderer(new MoveOrderer());
+            blackhole.consume(ai.getCurrentPlayerMove(game));
+        }
+    }
+}
@@ -0,0 +1,499 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+import ai.*;
+import game.*;
+
+// Headless self-play: two AIs play many games against each other, several at
+// once (one game per thread), and the result is reported with its uncertainty
+// Usage: java bench.Tournament engineA engineB [size] [games] [millisPerMove] [openingMoves] [threads]
+//   engines: see ENGINES below, e.g. java bench.Tournament pattern fast 7 2000 50
+//
+// Games are played in pairs: both games of a pair start from the same random
+// opening (openingMoves random moves), with the engines swapping colours, so
+// neither gains from a lucky opening or from moving first
+// The match stops early once a sequential probability ratio test (SPRT) can
+// tell, with the given error rates, whether engine A is at least elo1 stronger
+// than B or no more than elo0 - often long before the game limit
+// The two games of a pair share an opening, so their results aren't
+// independent: the SPRT counts pairs (the pentanomial model), not games
+//
+// Each thread makes its own instance of each engine (AIs keep state between
+// moves, like transposition tables), and records move times into its own
+// growable arrays, so the runner allocates nothing per move itself
+public class Tournament {
+    // an engine under test: a name, and a way to make one for a time limit
+    public static class Engine {
+        final String name;
+        final LongFunction<AI> factory; // millisPerMove -> a new AI
+
+        public Engine(String name, LongFunction<AI> factory) {
+            this.name = name;
+            this.factory = factory;
+        }
+    }
+
+    // the engines which can be named on the command line (each single-threaded,
+    // as the tournament already keeps every core busy - except parallel, which
+    // should be run with half as many tournament threads as cores)
+    static final List<Engine> ENGINES = List.of(
+            new Engine("minpieces", millis -> Minimax.withTimeBudget(millis, new MinPiecesHeuristic())),
+            new Engine("fast", millis -> Minimax.withTimeBudget(millis, new FastMinPiecesHeuristic())),
+            new Engine("incremental", millis -> Minimax.withTimeBudget(millis, new IncrementalMinPiecesHeuristic())),
+            new Engine("batch", millis -> Minimax.withTimeBudget(millis, new BatchMinPiecesHeuristic())),
+            new Engine("selective", millis -> {
+                var minimax = Minimax.withTimeBudget(millis, new IncrementalMinPiecesHeuristic());
+                minimax.setSelectiveSearch(true);
+                return minimax;
+            }),
+            new Engine("resistance", millis -> Minimax.withTimeBudget(millis, new ResistanceHeuristic())),
+            new Engine("pattern", millis -> Minimax.withTimeBudget(millis,
+                    new PatternHeuristic(new IncrementalMinPiecesHeuristic(), 10))),
+            new Engine("parallel", millis -> ParallelMinimax.withTimeBudget(millis, new FastMinPiecesHeuristic(), 2)),
+            new Engine("montecarlo", millis -> new MonteCarlo(1, millis, 0)));
+
+    static Engine engine(String name) {
+        for (var engine : ENGINES)
+            if (engine.name.equals(name))
+                return engine;
+        var names = new ArrayList<String>();
+        for (var engine : ENGINES)
+            names.add(engine.name);
+        throw new IllegalArgumentException("Unknown engine " + name + " (expected one of " + names + ")");
+    }
+
+    // ----- statistics -----
+
+    // a pair scores 0 to 4 half points
+    static final int PAIR_OUTCOMES = 5;
+
+    // z for a two-sided 95% interval
+    private static final double Z = 1.959964;
+
+    // statistics of the pairs counted in pairs[k] (see Sprt.llr): how many
+    // there are, their mean score per game, and its variance between pairs
+    static long pairCount(long[] pairs) {
+        long n = 0;
+        for (int k = 0; k < PAIR_OUTCOMES; k++)
+            n += pairs[k];
+        return n;
+    }
+
+    static double pairScore(long[] pairs) {
+        long n = pairCount(pairs);
+        double total = 0;
+        for (int k = 0; k < PAIR_OUTCOMES; k++)
+            total += pairs[k] * (k / 4.0);
+        return n == 0 ? 0.5 : total / n;
+    }
+
+    static double pairVariance(long[] pairs) {
+        long n = pairCount(pairs);
+        double s = pairScore(pairs), variance = 0;
+        for (int k = 0; k < PAIR_OUTCOMES; k++)
+            variance += pairs[k] * (k / 4.0 - s) * (k / 4.0 - s);
+        return n == 0 ? 0 : variance / n;
+    }
+
+    // 95% interval for the score: the mean pair score +- z standard errors,
+    // with the variance measured between pairs, as the SPRT does - the two
+    // games of a pair aren't independent, so counting them as two trials would
+    // make the interval too narrow
+    static double[] pairInterval(long[] pairs) {
+        long n = pairCount(pairs);
+        if (n == 0)
+            return new double[] { 0, 1 };
+        double s = pairScore(pairs), half = Z * Math.sqrt(pairVariance(pairs) / n);
+        return new double[] { Math.max(0, s - half), Math.min(1, s + half) };
+    }
+
+    // Elo difference which gives an expected score of score (infinite at 0 and 1)
+    static double elo(double score) {
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    // expected score for an Elo difference
+    static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    // A sequential probability ratio test of H0: elo = elo0 against
+    // H1: elo = elo1, with false positive rate alpha and false negative rate beta
+    // Uses the usual normal approximation to the generalised SPRT (as
+    // fishtest does), over game pairs: with n pairs, s the mean score per game
+    // of a pair and v its variance between pairs,
+    // LLR = n * (s1 - s0) * (2s - s0 - s1) / 2v
+    // Pairs are the independent samples, so a pair's two games, which are
+    // correlated through their shared opening, are never counted as two
+    public static class Sprt {
+        final double elo0, elo1, alpha, beta;
+
+        public Sprt(double elo0, double elo1, double alpha, double beta) {
+            if (elo1 <= elo0) throw new IllegalArgumentException("elo1 must be greater than elo0");
+            if (alpha <= 0 || alpha >= 1 || beta <= 0 || beta >= 1)
+                throw new IllegalArgumentException("alpha and beta must be in (0, 1)");
+            this.elo0 = elo0;
+            this.elo1 = elo1;
+            this.alpha = alpha;
+            this.beta = beta;
+        }
+
+        double lowerBound() {
+            return Math.log(beta / (1 - alpha));
+        }
+
+        double upperBound() {
+            return Math.log((1 - beta) / alpha);
+        }
+
+        // log likelihood ratio of H1 to H0 given the results so far, where
+        // pairs[k] is the number of pairs in which A scored k half points
+        // (0 to 4: two losses, a loss and a draw, ..., two wins)
+        double llr(long[] pairs) {
+            long n = pairCount(pairs);
+            if (n == 0)
+                return 0;
+            double s = pairScore(pairs), variance = pairVariance(pairs);
+            if (variance == 0)
+                return 0; // all pairs the same - no variance to go on yet
+            double s0 = expectedScore(elo0), s1 = expectedScore(elo1);
+            return n * (s1 - s0) * (2 * s - s0 - s1) / (2 * variance);
+        }
+    }
+
+    // ----- playing games -----
+
+    // a growable long[] - move times are added to it without allocating
+    // anything, except when it doubles
+    private static class LongList {
+        long[] values = new long[1024];
+        int size = 0;
+
+        void add(long value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, 2 * size);
+            values[size++] = value;
+        }
+    }
+
+    // one worker thread's engines and measurements
+    private static class Worker {
+        final AI[] ais = new AI[2];
+        final LongList[] moveNanos = { new LongList(), new LongList() };
+        final long[] overruns = new long[2]; // moves over the time limit
+        final long[] forfeits = new long[2]; // illegal moves
+    }
+
+    private final int size;
+    private final long millisPerMove;
+    private final int openingMoves;
+    private final int threads;
+    private final long seed;
+
+    // a move taking longer than this much of the time limit counts as an overrun
+    // (time budgeted searches check the clock every so often, so they always
+    // run over a little)
+    private static final double OVERRUN_FACTOR = 1.5;
+
+    public Tournament(int size, long millisPerMove, int openingMoves, int threads, long seed) {
+        if (size < 1) throw new IllegalArgumentException("size must be at least 1");
+        if (millisPerMove < 1) throw new IllegalArgumentException("millisPerMove must be at least 1");
+        if (openingMoves < 0 || openingMoves >= size * size)
+            throw new IllegalArgumentException("openingMoves must be in [0, " + (size * size - 1) + "]");
+        if (threads < 1) throw new IllegalArgumentException("threads must be at least 1");
+        this.size = size;
+        this.millisPerMove = millisPerMove;
+        this.openingMoves = openingMoves;
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+    // the random opening of a game pair, as row * size + col moves
+    private int[] opening(int pair) {
+        var random = new Random(seed * 1_000_003 + pair);
+        var game = new GameImpl(size);
+        var moves = new IntMoveList();
+        var opening = new int[openingMoves];
+        for (int i = 0; i < openingMoves; i++) {
+            if (game.isOver()) // (only possible on tiny boards)
+                return Arrays.copyOf(opening, i);
+            game.getMoves(moves);
+            opening[i] = moves.get(random.nextInt(moves.size()));
+            game.makeMove(opening[i]);
+        }
+        return opening;
+    }
+
+    // thrown when an engine fails with anything but an illegal move, to abort
+    // the match - a crashing engine shouldn't pass for a weak one
+    public static class EngineFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        EngineFailure(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    // plays one game from opening, with engine 0 as white if whiteIs0
+    // returns +1 if engine 0 won, -1 if engine 1 won, 0 for a draw
+    // An illegal move forfeits the game; any other exception from an engine
+    // is thrown on as an EngineFailure
+    private int play(Worker worker, Result result, int[] opening, boolean whiteIs0) {
+        var game = new GameImpl(size);
+        for (int move : opening)
+            game.makeMove(move);
+        long limit = (long) (millisPerMove * 1_000_000 * OVERRUN_FACTOR);
+
+        while (!game.isOver()) {
+            boolean whiteToMove = game.currentPlayer() == PieceColour.WHITE;
+            int engine = whiteToMove == whiteIs0 ? 0 : 1;
+            String name = engine == 0 ? result.nameA : result.nameB;
+            long start = System.nanoTime();
+            Move move;
+            try {
+                move = worker.ais[engine].getCurrentPlayerMove(game);
+            } catch (RuntimeException e) {
+                result.recordFailure(name, e, game);
+                throw new EngineFailure(name + " failed on\n" + game.getGrid(), e);
+            }
+            long nanos = System.nanoTime() - start;
+            worker.moveNanos[engine].add(nanos);
+            if (nanos > limit)
+                worker.overruns[engine]++;
+
+            try {
+                if (move == null)
+                    throw new IllegalArgumentException("no move returned");
+                game.makeMove(move);
+            } catch (IllegalArgumentException e) {
+                result.recordFailure(name, e, game);
+                worker.forfeits[engine]++;
+                return engine == 0 ? -1 : 1;
+            }
+        }
+
+        var winner = game.winner();
+        if (winner == PieceColour.NONE)
+            return 0;
+        return (winner == PieceColour.WHITE) == whiteIs0 ? 1 : -1;
+    }
+
+    // Plays a and b against each other for at most maxGames games (rounded up
+    // to whole pairs), stopping early if sprt (which may be null) decides
+    public Result match(Engine a, Engine b, int maxGames, Sprt sprt) {
+        int pairs = (maxGames + 1) / 2;
+        var nextPair = new AtomicInteger();
+        var stop = new AtomicBoolean();
+        var result = new Result(a.name, b.name, sprt);
+        long start = System.nanoTime();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        var futures = new ArrayList<Future<Worker>>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                var worker = new Worker();
+                worker.ais[0] = a.factory.apply(millisPerMove);
+                worker.ais[1] = b.factory.apply(millisPerMove);
+                try {
+                    int pair;
+                    // (an EngineFailure stops every thread, not just this one)
+                    while (!stop.get() && (pair = nextPair.getAndIncrement()) < pairs) {
+                        int[] opening = opening(pair);
+                        int first = play(worker, result, opening, true);
+                        int second = play(worker, result, opening, false);
+                        // both games of a pair are counted together
+                        if (result.add(first, second))
+                            stop.set(true);
+                    }
+                } catch (EngineFailure e) {
+                    stop.set(true);
+                    throw e;
+                } finally {
+                    for (var ai : worker.ais)
+                        shutdown(ai);
+                }
+                return worker;
+            }));
+        }
+
+        try {
+            for (var future : futures) {
+                var worker = future.get();
+                for (int engine = 0; engine < 2; engine++) {
+                    result.addTimes(engine, worker.moveNanos[engine]);
+                    result.overruns[engine] += worker.overruns[engine];
+                    result.forfeits[engine] += worker.forfeits[engine];
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof EngineFailure)
+                throw (EngineFailure) e.getCause();
+            throw new IllegalStateException("Tournament game failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Tournament interrupted", e);
+        } finally {
+            pool.shutdown();
+        }
+        // (sorted once here, for Result.percentile)
+        for (var times : result.moveNanos)
+            Arrays.sort(times);
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    // stops the threads of AIs which have their own
+    private static void shutdown(AI ai) {
+        if (ai instanceof MonteCarlo)
+            ((MonteCarlo) ai).shutdown();
+        else if (ai instanceof ParallelMinimax)
+            ((ParallelMinimax) ai).shutdown();
+    }
+
+    // ----- results -----
+
+    public static class Result {
+        final String nameA, nameB;
+        final Sprt sprt;
+        long wins, draws, losses; // for engine A
+        final long[] pairs = new long[PAIR_OUTCOMES]; // by A's half points (see Sprt.llr)
+        String decision = null; // SPRT outcome, once there is one
+        final long[][] moveNanos = { new long[0], new long[0] }; // sorted once the match is over
+        final long[] overruns = new long[2], forfeits = new long[2];
+        // engine failures (illegal moves, and the exception which aborted the
+        // match if there was one), by engine and exception, with their counts
+        final Map<String, Integer> failures = new LinkedHashMap<>();
+        long elapsedNanos;
+
+        Result(String nameA, String nameB, Sprt sprt) {
+            this.nameA = nameA;
+            this.nameB = nameB;
+            this.sprt = sprt;
+        }
+
+        // records a game pair, returning true if the SPRT has now decided
+        synchronized boolean add(int first, int second) {
+            for (int outcome : new int[] { first, second }) {
+                if (outcome > 0) wins++;
+                else if (outcome < 0) losses++;
+                else draws++;
+            }
+            pairs[first + second + 2]++;
+            if (sprt == null || decision != null)
+                return decision != null;
+            double llr = sprt.llr(pairs);
+            if (llr >= sprt.upperBound())
+                decision = "H1 accepted: " + nameA + " is stronger";
+            else if (llr <= sprt.lowerBound())
+                decision = "H0 accepted: " + nameA + " is not stronger";
+            return decision != null;
+        }
+
+        // records an engine's failure in a position, printing it (with the
+        // position and stack trace) the first time it's seen
+        synchronized void recordFailure(String engine, RuntimeException e, Game game) {
+            String key = engine + ": " + e;
+            int count = failures.merge(key, 1, Integer::sum);
+            if (count == 1) {
+                System.err.println(key + ", on");
+                System.err.print(game.getGrid());
+                e.printStackTrace();
+            }
+        }
+
+        void addTimes(int engine, LongList times) {
+            var all = Arrays.copyOf(moveNanos[engine], moveNanos[engine].length + times.size);
+            System.arraycopy(times.values, 0, all, moveNanos[engine].length, times.size);
+            moveNanos[engine] = all;
+        }
+
+        public long games() {
+            return wins + draws + losses;
+        }
+
+        // A's score: 1 per win, 1/2 per draw, per game
+        public double score() {
+            return games() == 0 ? 0.5 : (wins + 0.5 * draws) / games();
+        }
+
+        // q-th quantile of an engine's move times, in milliseconds (once sorted)
+        double percentile(int engine, double q) {
+            long[] sorted = moveNanos[engine];
+            if (sorted.length == 0)
+                return 0;
+            int index = (int) Math.ceil(q * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+        }
+
+        private static String eloString(double elo) {
+            return Double.isInfinite(elo) ? (elo > 0 ? "+inf" : "-inf") : String.format(Locale.ROOT, "%+.1f", elo);
+        }
+
+        @Override
+        public String toString() {
+            double score = score();
+            double[] interval = pairInterval(pairs);
+            var s = new StringBuilder();
+            s.append(String.format(Locale.ROOT, "%s vs %s: %d games in %.1f s%n", nameA, nameB, games(),
+                    elapsedNanos / 1e9));
+            s.append(String.format(Locale.ROOT, "  +%d =%d -%d, score %.1f%% [%.1f%%, %.1f%%] (95%%)%n", wins,
+                    draws, losses, 100 * score, 100 * interval[0], 100 * interval[1]));
+            s.append(String.format(Locale.ROOT, "  Elo %s [%s, %s]%n", eloString(elo(score)),
+                    eloString(elo(interval[0])), eloString(elo(interval[1]))));
+            s.append(String.format(Locale.ROOT, "  pairs (A scoring 0 to 2) %s%n", Arrays.toString(pairs)));
+            if (sprt != null)
+                s.append(String.format(Locale.ROOT, "  SPRT elo0 %.1f, elo1 %.1f: LLR %.2f [%.2f, %.2f] - %s%n",
+                        sprt.elo0, sprt.elo1, sprt.llr(pairs), sprt.lowerBound(), sprt.upperBound(),
+                        decision == null ? "undecided" : decision));
+            s.append(String.format(Locale.ROOT, "  %-14s %8s %8s %8s %8s %8s %9s %9s%n", "move time (ms)", "moves",
+                    "p50", "p90", "p99", "max", "overruns", "forfeits"));
+            String[] names = { nameA, nameB };
+            for (int engine = 0; engine < 2; engine++)
+                s.append(String.format(Locale.ROOT, "  %-14s %8d %8.1f %8.1f %8.1f %8.1f %9d %9d%n", names[engine],
+                        moveNanos[engine].length, percentile(engine, 0.5), percentile(engine, 0.9),
+                        percentile(engine, 0.99), percentile(engine, 1), overruns[engine], forfeits[engine]));
+            for (var failure : failures.entrySet())
+                s.append(String.format(Locale.ROOT, "  failed %dx - %s%n", failure.getValue(), failure.getKey()));
+            return s.toString();
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: java bench.Tournament engineA engineB [size] [games] [millisPerMove] "
+                    + "[openingMoves] [threads]");
+            var names = new ArrayList<String>();
+            for (var engine : ENGINES)
+                names.add(engine.name);
+            System.out.println("Engines: " + String.join(", ", names));
+            return;
+        }
+        var a = engine(args[0]);
+        var b = engine(args[1]);
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 7;
+        int games = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        long millis = args.length > 4 ? Long.parseLong(args[4]) : 50;
+        int openingMoves = args.length > 5 ? Integer.parseInt(args[5]) : 2;
+        int threads = args.length > 6 ? Integer.parseInt(args[6]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("%dx%d, up to %d games, %d ms/move, %d opening moves, %d threads%n", size, size, games,
+                millis, openingMoves, threads);
+        var tournament = new Tournament(size, millis, openingMoves, threads, 2005);
+        var result = tournament.match(a, b, games, new Sprt(0, 10, 0.05, 0.05));
+        System.out.print(result);
+    }
+}
@@ -0,0 +1,133 @@
+package game;
+
+// A Grid which stores each colour as a set of bitboards - one long per row,
+// with bit i of a row set if column i holds a piece of that colour
+// Much cheaper to copy than GridImpl, and lets PathFinder test for connections
+// with a handful of bitwise operations per row (see PathFinder.floodFill)
+public class BitGrid implements Grid {
+    // one bit per column, so rows can be at most this wide
+    public static final int MAX_SIZE = Long.SIZE;
+
+    private final int size;
+    private long[] white;
+    private long[] black;
+
+    // copy-on-write: copy() shares the bitboards, and whichever grid writes to
+    // them first clones them - so copying (and Game.getGrid()) is O(1)
+    private Sharers sharers = new Sharers();
+
+    public BitGrid(int size) throws IllegalArgumentException {
+        if (size <= 0 || size > MAX_SIZE)
+            throw new IllegalArgumentException(
+                    String.format("BitGrid size must be in range [1, %d] (received %d)", MAX_SIZE, size));
+
+        this.size = size;
+        this.white = new long[size];
+        this.black = new long[size];
+    }
+
+    // private: used by copy()
+    private BitGrid(int size, long[] white, long[] black, Sharers sharers) {
+        this.size = size;
+        this.white = white;
+        this.black = black;
+        this.sharers = sharers;
+    }
+
+    private void testBounds(int row, int col) throws IllegalArgumentException {
+        if (row < 0 || col < 0 || row >= size || col >= size) {
+            throw new IllegalArgumentException(
+                    String.format("(%d,%d) out of bounds; expected range [0, %d]", row, col, size - 1));
+        }
+    }
+
+    // bitboard rows for the given colour - package-private so PathFinder can
+    // flood fill them directly (callers must not modify the returned array)
+    long[] rows(PieceColour piece) {
+        switch (piece) {
+            case WHITE:
+                return white;
+            case BLACK:
+                return black;
+            default:
+                throw new IllegalArgumentException("No bitboard for colour " + piece);
+        }
+    }
+
+    // ----- implement Grid interface methods -----
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public PieceColour getPiece(int row, int col) throws IllegalArgumentException {
+        testBounds(row, col);
+
+        long bit = 1L << col;
+        if ((white[row] & bit) != 0)
+            return PieceColour.WHITE;
+        else if ((black[row] & bit) != 0)
+            return PieceColour.BLACK;
+        else
+            return PieceColour.NONE;
+    }
+
+    @Override
+    public void setPiece(int row, int col, PieceColour piece) throws IllegalArgumentException {
+        testBounds(row, col);
+        if (piece == null)
+            throw new IllegalArgumentException("Piece must be a valid colour (received null)");
+
+        if (sharers.isShared()) {
+            white = white.clone();
+            black = black.clone();
+            sharers.release();
+            sharers = new Sharers();
+        }
+
+        long bit = 1L << col;
+        white[row] &= ~bit;
+        black[row] &= ~bit;
+
+        if (piece == PieceColour.WHITE)
+            white[row] |= bit;
+        else if (piece == PieceColour.BLACK)
+            black[row] |= bit;
+    }
+
+    // each cell is its white bit plus twice its black bit - which is exactly its
+    // PieceColour ordinal, so rows unpack without any branches
+    @Override
+    public void copyCells(byte[] cells) throws IllegalArgumentException {
+        if (cells.length < size * size)
+            throw new IllegalArgumentException(
+                    String.format("Need %d cells to copy the grid into (received %d)", size * size, cells.length));
+        for (int row = 0; row < size; row++) {
+            long w = white[row], b = black[row];
+            for (int col = 0, cell = row * size; col < size; col++, cell++)
+                cells[cell] = (byte) ((w >>> col & 1) | (b >>> col & 1) << 1);
+        }
+    }
+
+    @Override
+    public Grid copy() {
+        // long[] is a flat array of primitives, so cloning it later (in setPiece)
+        // gives a deep copy - until then, both grids just read the same arrays
+        // (this grid isn't written to, so copies can be made on any thread)
+        return new BitGrid(size, white, black, sharers.share());
+    }
+
+    // same format as GridImpl so the two are interchangeable for display
+    @Override
+    public String toString() {
+        var s = new StringBuilder(size * (size + 1));
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++)
+                s.append(getPiece(row, col).pieceName());
+            s.append('\n');
+        }
+        return s.toString();
+    }
+}
@@ -32,6 +32,12 @@ public interface Game {
     // The collection should be empty if there are no valid moves
     Collection<Move> getMoves();
 
+    // Fills moves with all valid moves for the current player, each encoded as
+    // row * size + col, in the same order as getMoves()
+    // moves is cleared first; nothing is allocated if it is already big enough,
+    // so a search can reuse one list per ply instead of a new Collection per node
+    void getMoves(IntMoveList moves);
+
 
     // Executes a move for the current player
     // Updates the internal game state to reflect the move
@@ -43,6 +49,32 @@ public interface Game {
     // or the position is out of bounds
     void makeMove(Move move);
 
+    // As makeMove(Move), with the move encoded as row * size + col
+    // Throws an IllegalArgumentException if the move is invalid
+    void makeMove(int move);
+
+    // Reverses the most recent call to makeMove
+    // Afterwards the game (grid, current player, winner, moves) is exactly as it
+    // was before that move, so a search can play and retract moves on a single
+    // game instead of copying it at every step
+    // Throws an IllegalStateException if no moves have been made
+    void undoMove();
+
+    // A 64-bit Zobrist hash of the position (the grid and the current player)
+    // Equal positions always have equal keys, however they were reached, so
+    // the key can be used to recognise transpositions (see game.Zobrist)
+    long hashKey();
+
+    // A hash shared by this position and all of its rotations and reflections,
+    // which have the same game value (see game.Symmetry)
+    // It is the hashKey() of canonicalSymmetry() applied to this position
+    long canonicalKey();
+
+    // The Symmetry transform that maps this position to its canonical form
+    // A move m here is the move Symmetry.apply(canonicalSymmetry(), size, m) in
+    // the canonical position (and Symmetry.inverse maps it back)
+    int canonicalSymmetry();
+
     // Returns a copy of the grid
     // Note that this is should be a deep copy
     // Which means that the grid returned should be a new object
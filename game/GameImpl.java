@@ -7,32 +7,197 @@ public class GameImpl implements Game {
     private Grid grid; // game grid
     private PieceColour currPlayer = PieceColour.WHITE; // "white moves first"
 
+    // connected groups of pieces of each colour, indexed by row * size + col
+    private UnionFind whiteSets;
+    private UnionFind blackSets;
+
+    // true once some group of that colour spans the grid
+    private boolean whiteConnected = false;
+    private boolean blackConnected = false;
+
+    // empty cells (as row * size + col), kept packed in freeCells[0, freeCount)
+    // freeIndex[cell] is that cell's position in freeCells, so any cell can be
+    // removed in O(1) by swapping it with the last free cell
+    private int[] freeCells;
+    private int[] freeIndex;
+    private int freeCount;
+
+    // Zobrist hash of the position under each Symmetry transform (the identity
+    // first, so symmetryHashes[0] is hashKey()), updated by makeMove/undoMove
+    private long[] symmetryHashes = new long[Symmetry.COUNT];
+    private long[] zobristKeys;
+    private int[][] symmetries;
+
+    // winner() is cached between moves; only makeMove/undoMove can change it
+    private PieceColour cachedWinner = null;
+
+    // one entry per move made, so that undoMove can reverse it exactly:
+    // the cell played, where it sat in freeCells, the union-find trail mark
+    // before the move, and whether the mover was already connected
+    private int[] historyCells;
+    private int[] historyFreeIndex;
+    private int[] historyTrailMark;
+    private boolean[] historyConnected;
+    private int historySize = 0;
+
+    // copy-on-write: copy() shares the free list and history arrays, and they
+    // are only cloned when one of the games next makes or undoes a move
+    // (together with the copy-on-write grid, this makes copy() O(size) at worst)
+    private Sharers stateSharers = new Sharers();
+
     public GameImpl(int size) throws IllegalArgumentException {
         if (size <= 0)
             throw new IllegalArgumentException("Grid size must be >= 1 (received " + size + ")");
 
-        this.grid = new GridImpl(size);
+        // bitboards are much faster for PathFinder, but only fit boards up to 64 wide
+        this.grid = size <= BitGrid.MAX_SIZE ? new BitGrid(size) : new GridImpl(size);
+
+        this.whiteSets = new UnionFind(size * size);
+        this.blackSets = new UnionFind(size * size);
+
+        this.freeCount = size * size;
+        this.freeCells = new int[freeCount];
+        this.freeIndex = new int[freeCount];
+        for (int cell = 0; cell < freeCount; cell++) {
+            freeCells[cell] = cell;
+            freeIndex[cell] = cell;
+        }
+
+        this.zobristKeys = Zobrist.keys(size);
+        this.symmetries = Symmetry.permutations(size);
+
+        // there can never be more moves than cells
+        this.historyCells = new int[size * size];
+        this.historyFreeIndex = new int[size * size];
+        this.historyTrailMark = new int[size * size];
+        this.historyConnected = new boolean[size * size];
     }
 
     // note all non-interface methods are marked private - they are implementation
     // details of the interface
 
-    // initialise new game with given grid - for copy() method
-    private GameImpl(Grid grid, PieceColour currPlayer) {
-        this.grid = grid.copy();
-        // assume grid passed as argument is a reference, rather than deep copy so
-        // .copy() method called here
+    // initialise new game as a deep copy of another - for copy() method
+    private GameImpl(GameImpl other) {
+        this.grid = other.grid.copy();
+        this.currPlayer = other.currPlayer;
+
+        this.whiteSets = other.whiteSets.copy();
+        this.blackSets = other.blackSets.copy();
+        this.whiteConnected = other.whiteConnected;
+        this.blackConnected = other.blackConnected;
+
+        this.freeCells = other.freeCells;
+        this.freeIndex = other.freeIndex;
+        this.freeCount = other.freeCount;
+        this.cachedWinner = other.cachedWinner;
+        this.symmetryHashes = other.symmetryHashes.clone();
+        this.zobristKeys = other.zobristKeys;
+        this.symmetries = other.symmetries;
+
+        this.historyCells = other.historyCells;
+        this.historyFreeIndex = other.historyFreeIndex;
+        this.historyTrailMark = other.historyTrailMark;
+        this.historyConnected = other.historyConnected;
+        this.historySize = other.historySize;
+        this.stateSharers = other.stateSharers.share();
+    }
+
+    // clone the free list and history if they are still shared with a copy
+    private void ownState() {
+        if (stateSharers.isShared()) {
+            freeCells = freeCells.clone();
+            freeIndex = freeIndex.clone();
+            historyCells = historyCells.clone();
+            historyFreeIndex = historyFreeIndex.clone();
+            historyTrailMark = historyTrailMark.clone();
+            historyConnected = historyConnected.clone();
+            stateSharers.release();
+            stateSharers = new Sharers();
+        }
+    }
 
-        this.currPlayer = currPlayer;
+    private UnionFind setsFor(PieceColour pieceColour) {
+        return pieceColour == PieceColour.WHITE ? whiteSets : blackSets;
     }
 
-    // check if given pieceColour has won using provided external methods
+    // check if given pieceColour has won
+    // rather than running PathFinder over the whole grid, makeMove keeps each
+    // colour's connected groups (and the edges each group touches) up to date,
+    // so a connection exists iff one group touches two opposite edges
+    // (this gives exactly the same answer as PathFinder.leftToRight/topToBottom)
     private boolean checkWinner(PieceColour pieceColour) {
-        return PathFinder.leftToRight(grid, pieceColour) || PathFinder.topToBottom(grid, pieceColour);
+        return pieceColour == PieceColour.WHITE ? whiteConnected : blackConnected;
+    }
+
+    // XOR a piece in or out of the hashes, and flip the side to move
+    private void updateHash(int cell, PieceColour pieceColour) {
+        int offset = pieceColour == PieceColour.WHITE ? 0 : grid.getSize() * grid.getSize();
+        for (int t = 0; t < Symmetry.COUNT; t++)
+            symmetryHashes[t] ^= zobristKeys[offset + symmetries[t][cell]] ^ Zobrist.BLACK_TO_MOVE;
+    }
+
+    // merge the piece just placed at (row, col) into its colour's groups
+    private void connectPiece(int row, int col, PieceColour pieceColour) {
+        int size = grid.getSize();
+        var sets = setsFor(pieceColour);
+        int cell = row * size + col;
+
+        int edgeFlags = 0;
+        if (row == 0)
+            edgeFlags |= UnionFind.EDGE_TOP;
+        if (row == size - 1)
+            edgeFlags |= UnionFind.EDGE_BOTTOM;
+        if (col == 0)
+            edgeFlags |= UnionFind.EDGE_LEFT;
+        if (col == size - 1)
+            edgeFlags |= UnionFind.EDGE_RIGHT;
+        sets.touch(cell, edgeFlags);
+
+        if (row > 0 && grid.getPiece(row - 1, col) == pieceColour)
+            sets.union(cell, cell - size);
+        if (row < size - 1 && grid.getPiece(row + 1, col) == pieceColour)
+            sets.union(cell, cell + size);
+        if (col > 0 && grid.getPiece(row, col - 1) == pieceColour)
+            sets.union(cell, cell - 1);
+        if (col < size - 1 && grid.getPiece(row, col + 1) == pieceColour)
+            sets.union(cell, cell + 1);
+
+        // only the group containing the new piece can have changed
+        if (UnionFind.spansGrid(sets.edges(cell))) {
+            if (pieceColour == PieceColour.WHITE)
+                whiteConnected = true;
+            else
+                blackConnected = true;
+        }
     }
 
     private boolean isOutOfMoves() {
-        return getMoves().size() == 0;
+        return freeCount == 0;
+    }
+
+    // take cell out of the free list (swap-with-last, so order is not preserved)
+    // returns the position it was removed from, for restoreFree
+    private int removeFree(int cell) {
+        int index = freeIndex[cell];
+        int last = freeCells[--freeCount];
+
+        freeCells[index] = last;
+        freeIndex[last] = index;
+        freeCells[freeCount] = cell;
+        freeIndex[cell] = freeCount;
+        return index;
+    }
+
+    // exact inverse of removeFree - cell goes back to its old position and the
+    // cell that was swapped into that position goes back to the end
+    private void restoreFree(int cell, int index) {
+        int last = freeCells[index];
+
+        freeCells[freeCount] = last;
+        freeIndex[last] = freeCount;
+        freeCells[index] = cell;
+        freeIndex[cell] = index;
+        freeCount++;
     }
 
     // side note: method named as such so that if statements read "if (moveIsValid)"
@@ -47,20 +212,23 @@ public class GameImpl implements Game {
     // True if the game is over
     @Override
     public boolean isOver() {
-        return isOutOfMoves() || checkWinner(PieceColour.WHITE) || checkWinner(PieceColour.BLACK);
+        return isOutOfMoves() || winner() != PieceColour.NONE;
     }
 
     // The colour of the winner.
     @Override
     public PieceColour winner() {
-        if (checkWinner(PieceColour.WHITE))
-            return PieceColour.WHITE;
+        if (cachedWinner == null) {
+            if (checkWinner(PieceColour.WHITE))
+                cachedWinner = PieceColour.WHITE;
 
-        else if (checkWinner(PieceColour.BLACK))
-            return PieceColour.BLACK;
+            else if (checkWinner(PieceColour.BLACK))
+                cachedWinner = PieceColour.BLACK;
 
-        else
-            return PieceColour.NONE; // drawn, or ongoing
+            else
+                cachedWinner = PieceColour.NONE; // drawn, or ongoing
+        }
+        return cachedWinner;
     }
 
     // The colour of the current player (the player who will make the next move)
@@ -72,16 +240,25 @@ public class GameImpl implements Game {
     // Gets a Collection of all valid moves for the current player
     @Override
     public Collection<Move> getMoves() {
-        var moves = new ArrayList<Move>();
+        int size = grid.getSize();
+        var moves = new ArrayList<Move>(freeCount);
 
-        for (int row = 0; row < grid.getSize(); row++)
-            for (int col = 0; col < grid.getSize(); col++)
-                if (moveIsValid(row, col))
-                    moves.add(new MoveImpl(row, col));
+        // only the free list is visited, rather than scanning the whole grid
+        for (int i = 0; i < freeCount; i++)
+            moves.add(MoveImpl.ofCell(freeCells[i], size));
 
         return moves;
     }
 
+    // Fills moves with the free cells - no allocation, as they are already
+    // kept as row * size + col
+    @Override
+    public void getMoves(IntMoveList moves) {
+        moves.clear();
+        for (int i = 0; i < freeCount; i++)
+            moves.add(freeCells[i]);
+    }
+
     // Executes a move for the current player
     @Override
     public void makeMove(Move move) throws IllegalArgumentException {
@@ -98,20 +275,95 @@ public class GameImpl implements Game {
         if (!moveIsValid(move.getRow(), move.getCol()))
             throw new IllegalArgumentException(String.format("(%d,%d) already occupied", move.getRow(), move.getCol()));
 
-        grid.setPiece(move.getRow(), move.getCol(), currPlayer);
+        play(move.getRow() * grid.getSize() + move.getCol());
+    }
+
+    // Executes a move, given as row * size + col, for the current player
+    @Override
+    public void makeMove(int move) throws IllegalArgumentException {
+        int size = grid.getSize();
+        if (move < 0 || move >= size * size)
+            throw new IllegalArgumentException(String.format("Move %d is out of bounds for size %d", move, size));
+        if (!moveIsValid(move / size, move % size))
+            throw new IllegalArgumentException(String.format("(%d,%d) already occupied", move / size, move % size));
+
+        play(move);
+    }
+
+    // makes a move already known to be valid
+    private void play(int cell) {
+        int row = cell / grid.getSize(), col = cell % grid.getSize();
+        ownState();
+        historyCells[historySize] = cell;
+        historyTrailMark[historySize] = setsFor(currPlayer).mark();
+        historyConnected[historySize] = checkWinner(currPlayer);
+
+        grid.setPiece(row, col, currPlayer);
+        connectPiece(row, col, currPlayer);
+        historyFreeIndex[historySize] = removeFree(cell);
+        updateHash(cell, currPlayer);
+        historySize++;
+        cachedWinner = null;
 
         currPlayer = currPlayer == PieceColour.WHITE ? PieceColour.BLACK : PieceColour.WHITE;
     }
 
+    // Reverses the most recent makeMove
+    @Override
+    public void undoMove() throws IllegalStateException {
+        if (historySize == 0)
+            throw new IllegalStateException("No moves to undo");
+
+        ownState();
+        historySize--;
+        currPlayer = currPlayer == PieceColour.WHITE ? PieceColour.BLACK : PieceColour.WHITE;
+
+        int cell = historyCells[historySize];
+        int size = grid.getSize();
+        grid.setPiece(cell / size, cell % size, PieceColour.NONE);
+        restoreFree(cell, historyFreeIndex[historySize]);
+        updateHash(cell, currPlayer);
+
+        setsFor(currPlayer).rollback(historyTrailMark[historySize]);
+        if (currPlayer == PieceColour.WHITE)
+            whiteConnected = historyConnected[historySize];
+        else
+            blackConnected = historyConnected[historySize];
+
+        cachedWinner = null;
+    }
+
+    // Zobrist hash of the position, maintained incrementally
+    @Override
+    public long hashKey() {
+        return symmetryHashes[0];
+    }
+
+    // Smallest of the 8 transformed hashes - also maintained incrementally, so
+    // this is just a handful of comparisons
+    @Override
+    public long canonicalKey() {
+        return symmetryHashes[Symmetry.canonicalTransform(symmetryHashes)];
+    }
+
+    @Override
+    public int canonicalSymmetry() {
+        return Symmetry.canonicalTransform(symmetryHashes);
+    }
+
     // Returns a copy of the grid
+    // (cheap, since grids are copy-on-write - the copy shares storage with the
+    // game's grid until one of them is modified)
     @Override
     public Grid getGrid() {
         return grid.copy();
     }
 
     // Returns a copy of the game, using private constructor
+    // (copying only reads this game, so a game which isn't being changed can be
+    // copied by several threads at once)
     @Override
     public Game copy() {
-        return new GameImpl(grid, currPlayer);
+        return new GameImpl(this);
     }
 }
@@ -16,6 +16,13 @@ public interface Grid {
     // Throws IllegalArgumentException if the piece is not a valid colour
     void setPiece(int row, int col, PieceColour piece);
 
+    // Copies every cell into cells[row * size + col], as PieceColour ordinals
+    // (0 for NONE, 1 for WHITE, 2 for BLACK)
+    // For code which reads the whole grid: one call, with no bounds check or
+    // PieceColour per cell, leaves the position in a flat primitive array
+    // Throws IllegalArgumentException if cells is shorter than size * size
+    void copyCells(byte[] cells);
+
     // Returns a copy of the grid
     // Note that this is should be a deep copy
     // Which means that the grid returned should be a new object
@@ -3,19 +3,29 @@ package game;
 public class GridImpl implements Grid {
     PieceColour[][] grid;
 
+    // copy-on-write: copy() shares the row arrays between both grids, and a
+    // shared row is only cloned the first time either grid writes to it
+    // (so copying costs O(size) rather than O(size^2), and grids which are only
+    // read, like the ones returned by Game.getGrid(), never clone anything)
+    private Sharers[] rowSharers;
+
     public GridImpl(int size) {
         this.grid = new PieceColour[size][size];
+        this.rowSharers = new Sharers[size];
 
         // initalise grid
         for (var row : this.grid)
             for (int i = 0; i < size; i++)
                 row[i] = PieceColour.NONE;
+        for (int row = 0; row < size; row++)
+            rowSharers[row] = new Sharers();
     }
 
     // private method to pre-initialise gridF
     // private: implementation detail of the interface
-    private GridImpl(PieceColour[][] grid) {
+    private GridImpl(PieceColour[][] grid, Sharers[] rowSharers) {
         this.grid = grid;
+        this.rowSharers = rowSharers;
     }
 
     private void testBounds(int row, int col) throws IllegalArgumentException {
@@ -47,20 +57,38 @@ public class GridImpl implements Grid {
     @Override
     public void setPiece(int row, int col, PieceColour piece) {
         testBounds(row, col);
+        if (rowSharers[row].isShared()) {
+            // docs: "By convention, the object returned by this method should be
+            // independent of this object"
+            // => .clone() impl on arrays performs deep copy
+            grid[row] = grid[row].clone();
+            rowSharers[row].release();
+            rowSharers[row] = new Sharers();
+        }
         grid[row][col] = piece;
     }
 
     @Override
-    public Grid copy() {
-        var gridClone = new PieceColour[getSize()][];
-        for (int x = 0; x < getSize(); x++) {
-            // docs: "By convention, the object returned by this method should be
-            // independent of this object"
-            // => .clone() impl on arrays performs deep copy
-            gridClone[x] = grid[x].clone();
+    public void copyCells(byte[] cells) throws IllegalArgumentException {
+        int size = grid.length;
+        if (cells.length < size * size)
+            throw new IllegalArgumentException(
+                    String.format("Need %d cells to copy the grid into (received %d)", size * size, cells.length));
+        for (int row = 0; row < size; row++) {
+            PieceColour[] entries = grid[row];
+            for (int col = 0; col < size; col++)
+                cells[row * size + col] = (byte) entries[col].ordinal();
         }
+    }
 
-        return new GridImpl(gridClone);
+    @Override
+    public Grid copy() {
+        // only the outer array is copied - every row is now shared by both grids
+        // (this grid isn't written to, so copies can be made on any thread)
+        var sharers = new Sharers[grid.length];
+        for (int row = 0; row < grid.length; row++)
+            sharers[row] = rowSharers[row].share();
+        return new GridImpl(grid.clone(), sharers);
     }
 
     @Override
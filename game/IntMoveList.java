@@ -0,0 +1,82 @@
+package game;
+
+import java.util.Arrays;
+
+// A growable list of moves encoded as ints (row * size + col), for code which
+// generates and sorts moves at every node of a search - unlike a
+// Collection<Move>, filling it again reuses the same array, so nothing is
+// allocated once it has grown to the largest size needed
+public class IntMoveList {
+    private int[] moves;
+    private int size = 0;
+
+    public IntMoveList() {
+        this(16);
+    }
+
+    public IntMoveList(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("capacity must not be negative (received " + capacity + ")");
+        moves = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(int index) {
+        checkIndex(index);
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        checkIndex(index);
+        moves[index] = move;
+    }
+
+    public void add(int move) {
+        if (size == moves.length)
+            moves = Arrays.copyOf(moves, Math.max(16, 2 * moves.length));
+        moves[size++] = move;
+    }
+
+    // swaps the moves at two indices
+    public void swap(int i, int j) {
+        checkIndex(i);
+        checkIndex(j);
+        int move = moves[i];
+        moves[i] = moves[j];
+        moves[j] = move;
+    }
+
+    // shortens the list to its first size moves
+    public void truncate(int size) {
+        if (size < 0 || size > this.size)
+            throw new IndexOutOfBoundsException("Cannot truncate " + this.size + " moves to " + size);
+        this.size = size;
+    }
+
+    // empties the list (keeping its capacity)
+    public void clear() {
+        size = 0;
+    }
+
+    // copies the moves out as an array
+    public int[] toArray() {
+        return Arrays.copyOf(moves, size);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + size + " moves");
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -1,14 +1,37 @@
 package game;
 
 public class MoveImpl implements Move {
-    private int row;
-    private int col;
+    // moves are immutable, so the common ones are shared rather than allocated
+    // again every time (see of) - enough for every cell of a BitGrid
+    private static final int SHARED_SIZE = BitGrid.MAX_SIZE;
+    private static final MoveImpl[] SHARED = new MoveImpl[SHARED_SIZE * SHARED_SIZE];
+
+    static {
+        for (int i = 0; i < SHARED.length; i++)
+            SHARED[i] = new MoveImpl(i / SHARED_SIZE, i % SHARED_SIZE);
+    }
+
+    private final int row;
+    private final int col;
 
     public MoveImpl(int row, int col) {
         this.row = row;
         this.col = col;
     }
 
+    // The move (row, col) - a shared instance if there is one, so this doesn't
+    // allocate for any grid up to BitGrid.MAX_SIZE
+    public static MoveImpl of(int row, int col) {
+        if (row >= 0 && row < SHARED_SIZE && col >= 0 && col < SHARED_SIZE)
+            return SHARED[row * SHARED_SIZE + col];
+        return new MoveImpl(row, col);
+    }
+
+    // The move encoded as cell = row * size + col (see Game.getMoves(IntMoveList))
+    public static MoveImpl ofCell(int cell, int size) {
+        return of(cell / size, cell % size);
+    }
+
     // implement Move interface methods (marker; look in GridImpl for reasoning of '@Override' usage)
     @Override
     public int getRow() {
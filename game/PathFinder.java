@@ -1,82 +1,121 @@
 package game;
 
-import java.util.*;
-
 public class PathFinder {
-    private static class Position {
-        int row, col;
+    // Breadth first search through piece's cells, from one edge to the opposite
+    // one (top to bottom if vertical, else left to right)
+    // Runs on a flat snapshot of the grid (see Grid.copyCells), so the inner
+    // loop is plain array reads with no bounds-checked getPiece calls
+    private static boolean findPath(Grid grid, PieceColour piece, boolean vertical) {
+        int size = grid.getSize(), n = size * size;
+        byte[] cells = new byte[n];
+        grid.copyCells(cells);
+        byte colour = (byte) piece.ordinal();
 
-        Position(int row, int col) {
-            this.row = row;
-            this.col = col;
+        // each cell is queued at most once, so a plain array is a big enough queue
+        int[] queue = new int[n];
+        boolean[] visited = new boolean[n];
+        int head = 0, tail = 0;
+        for (int i = 0; i < size; i++) {
+            int cell = vertical ? i : i * size;
+            if (cells[cell] == colour) {
+                queue[tail++] = cell;
+                visited[cell] = true;
+            }
         }
 
-        @Override
-        public boolean equals(Object obj) {
-            Position other = (Position) obj;
-            return row == other.row && col == other.col;
+        while (head < tail) {
+            int cell = queue[head++];
+            int row = cell / size, col = cell % size;
+            if ((vertical ? row : col) == size - 1)
+                return true;
+            for (int d = 0; d < 4; d++) {
+                int r = row + (d == 0 ? -1 : d == 1 ? 1 : 0), c = col + (d == 2 ? -1 : d == 3 ? 1 : 0);
+                if (r < 0 || r >= size || c < 0 || c >= size)
+                    continue;
+                int next = r * size + c;
+                if (visited[next] || cells[next] != colour)
+                    continue;
+                queue[tail++] = next;
+                visited[next] = true;
+            }
         }
+        return false;
     }
 
-    private static Collection<Position> getOnRow(Grid grid, int row, PieceColour piece) {
-        Collection<Position> positions = new ArrayList<>();
-        for (int col = 0; col < grid.getSize(); col++)
-            if (grid.getPiece(row, col) == piece)
-                positions.add(new Position(row, col));
-        return positions;
+    // grows a row within its own pieces until it stops changing
+    private static long spreadRow(long reach, long own) {
+        long prev;
+        do {
+            prev = reach;
+            reach |= ((reach << 1) | (reach >>> 1)) & own;
+        } while (reach != prev);
+        return reach;
     }
 
-    private static Collection<Position> getOnCol(Grid grid, int col, PieceColour piece) {
-        Collection<Position> positions = new ArrayList<>();
-        for (int row = 0; row < grid.getSize(); row++)
-            if (grid.getPiece(row, col) == piece)
-                positions.add(new Position(row, col));
-        return positions;
+    // Bit-parallel flood fill over BitGrid rows
+    // reach starts as the seeded pieces, and is then swept downwards and upwards
+    // (spreading sideways within each row) until a full pass changes nothing
+    private static long[] floodFill(long[] own, long[] reach) {
+        int size = own.length;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int row = 0; row < size; row++) {
+                long from = row > 0 ? reach[row - 1] : 0;
+                long next = spreadRow(reach[row] | (from & own[row]), own[row]);
+                if (next != reach[row]) {
+                    reach[row] = next;
+                    changed = true;
+                }
+            }
+            for (int row = size - 2; row >= 0; row--) {
+                long next = spreadRow(reach[row] | (reach[row + 1] & own[row]), own[row]);
+                if (next != reach[row]) {
+                    reach[row] = next;
+                    changed = true;
+                }
+            }
+        }
+        return reach;
     }
 
-    private static boolean findPath(Grid grid, Collection<Position> starts, Collection<Position> ends) {
-        Queue<Position> queue = new ArrayDeque<>();
-        boolean[][] visited = new boolean[grid.getSize()][grid.getSize()];
-        for (Position start : starts) {
-            queue.offer(start);
-            visited[start.row][start.col] = true;
-        }
-        int[][] dirs = { { -1, 0 }, { 1, 0 }, { 0, -1 }, { 0, 1 } };
-        while (!queue.isEmpty()) {
-            Position pos = queue.poll();
-            if (ends.contains(pos))
+    private static boolean topToBottom(BitGrid grid, PieceColour player) {
+        long[] own = grid.rows(player);
+        long[] reach = new long[own.length];
+        reach[0] = own[0];
+        return floodFill(own, reach)[own.length - 1] != 0;
+    }
+
+    private static boolean leftToRight(BitGrid grid, PieceColour player) {
+        long[] own = grid.rows(player);
+        long[] reach = new long[own.length];
+        long right = 1L << (own.length - 1);
+        for (int row = 0; row < own.length; row++)
+            reach[row] = own[row] & 1L;
+
+        floodFill(own, reach);
+        for (long r : reach)
+            if ((r & right) != 0)
                 return true;
-            for (int d = 0; d < dirs.length; d++) {
-                int row = pos.row + dirs[d][0];
-                int col = pos.col + dirs[d][1];
-                if (row < 0 || row >= grid.getSize() || col < 0 || col >= grid.getSize())
-                    continue;
-                if (visited[row][col])
-                    continue;
-                PieceColour piece = grid.getPiece(row, col);
-                if (piece != grid.getPiece(pos.row, pos.col))
-                    continue;
-                queue.offer(new Position(row, col));
-                visited[row][col] = true;
-            }
-        }
         return false;
     }
 
     // Returns true if there is a path from the top row to the bottom row
     // consisting of pieces of the given player's colour.
     public static boolean topToBottom(Grid grid, PieceColour player) {
-        Collection<Position> starts = getOnRow(grid, 0, player);
-        Collection<Position> ends = getOnRow(grid, grid.getSize() - 1, player);
-        return findPath(grid, starts, ends);
+        if (grid instanceof BitGrid && player != PieceColour.NONE)
+            return topToBottom((BitGrid) grid, player);
+
+        return findPath(grid, player, true);
     }
 
 
     // Returns true if there is a path from the left column to the right column
     // consisting of pieces of the given player's colour.
     public static boolean leftToRight(Grid grid, PieceColour player) {
-        Collection<Position> starts = getOnCol(grid, 0, player);
-        Collection<Position> ends = getOnCol(grid, grid.getSize() - 1, player);
-        return findPath(grid, starts, ends);
+        if (grid instanceof BitGrid && player != PieceColour.NONE)
+            return leftToRight((BitGrid) grid, player);
+
+        return findPath(grid, player, false);
     }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package game;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Counts the objects sharing some copy-on-write storage (GridImpl's rows,
+// BitGrid's bitboards, and the arrays of UnionFind and GameImpl)
+// copy() shares the storage by taking a reference here, so it never writes to
+// the object being copied - any number of threads can copy one object at once.
+// An object about to write to storage which is still shared clones it first
+// (with new Sharers of its own), and lets go of the old storage
+// A copy which is dropped without writing never lets go, so the last object
+// still using the storage may clone it once more than it strictly had to
+final class Sharers {
+    private final AtomicInteger count = new AtomicInteger(1);
+
+    // a reference for a new copy
+    Sharers share() {
+        count.incrementAndGet();
+        return this;
+    }
+
+    boolean isShared() {
+        return count.get() > 1;
+    }
+
+    // called by an object which has cloned the storage for itself
+    void release() {
+        count.decrementAndGet();
+    }
+}
@@ -0,0 +1,88 @@
+package game;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// The eight symmetries of a square grid (rotations and reflections)
+// Both players win by connecting either pair of opposite edges, so every one of
+// these maps a position to another with exactly the same game value - a search
+// only needs to look at one position from each group of symmetric ones
+//
+// Transform t maps the cell at (row, col) to permutation(size)[t][row * size + col]
+public final class Symmetry {
+    public static final int COUNT = 8;
+
+    // 0 identity, 1-3 rotations by 90/180/270 degrees clockwise,
+    // 4 mirror left-right, 5 mirror top-bottom, 6 transpose, 7 anti-transpose
+    private static final int[] INVERSE = { 0, 3, 2, 1, 4, 5, 6, 7 };
+
+    private static final ConcurrentHashMap<Integer, int[][]> PERMUTATIONS = new ConcurrentHashMap<>();
+
+    private Symmetry() {
+    }
+
+    // cell permutation for each transform, for a grid of the given size
+    // the returned arrays are shared and must not be modified
+    public static int[][] permutations(int size) {
+        return PERMUTATIONS.computeIfAbsent(size, n -> {
+            var perms = new int[COUNT][n * n];
+            for (int row = 0; row < n; row++)
+                for (int col = 0; col < n; col++) {
+                    int r = n - 1 - row, c = n - 1 - col, cell = row * n + col;
+                    perms[0][cell] = row * n + col;
+                    perms[1][cell] = col * n + r;
+                    perms[2][cell] = r * n + c;
+                    perms[3][cell] = c * n + row;
+                    perms[4][cell] = row * n + c;
+                    perms[5][cell] = r * n + col;
+                    perms[6][cell] = col * n + row;
+                    perms[7][cell] = c * n + r;
+                }
+            return perms;
+        });
+    }
+
+    // where transform t moves the cell (row * size + col) to
+    public static int apply(int t, int size, int cell) {
+        return permutations(size)[t][cell];
+    }
+
+    // the transform which undoes t
+    public static int inverse(int t) {
+        return INVERSE[t];
+    }
+
+    // the transformed Zobrist hash of a position, for each of the 8 transforms,
+    // computed from scratch (GameImpl maintains these incrementally)
+    public static long[] hashes(Grid grid, PieceColour toMove) {
+        int size = grid.getSize();
+        var perms = permutations(size);
+        var hashes = new long[COUNT];
+        for (int t = 0; t < COUNT; t++)
+            hashes[t] = toMove == PieceColour.BLACK ? Zobrist.BLACK_TO_MOVE : 0;
+
+        for (int row = 0; row < size; row++)
+            for (int col = 0; col < size; col++) {
+                var piece = grid.getPiece(row, col);
+                if (piece != PieceColour.NONE)
+                    for (int t = 0; t < COUNT; t++)
+                        hashes[t] ^= Zobrist.key(size, perms[t][row * size + col], piece);
+            }
+        return hashes;
+    }
+
+    // index of the transform giving the smallest hash - the "canonical" one
+    public static int canonicalTransform(long[] hashes) {
+        int best = 0;
+        for (int t = 1; t < COUNT; t++)
+            if (hashes[t] < hashes[best])
+                best = t;
+        return best;
+    }
+
+    // a key shared by a position and all of its symmetric variants
+    // GameImpl.canonicalKey() always equals canonicalKey(getGrid(), currentPlayer())
+    public static long canonicalKey(Grid grid, PieceColour toMove) {
+        var hashes = hashes(grid, toMove);
+        return hashes[canonicalTransform(hashes)];
+    }
+}
@@ -0,0 +1,161 @@
+package game;
+
+import java.util.Arrays;
+
+// Disjoint-set forest over the cells of a grid
+// Used by GameImpl to track which pieces of a colour are connected, so that
+// checking for a winner is a couple of find() calls rather than a full search
+//
+// Each set also records which edges of the grid it touches, as a bitmask of
+// EDGE_* flags. These play the role of the usual virtual edge nodes, but
+// can't accidentally join two edges through a corner piece (a corner touches
+// both the bottom and the left edge, which does not connect bottom to top!)
+//
+// Every write to the arrays is logged on a trail, so that GameImpl.undoMove
+// can put the structure back exactly as it was with rollback(mark)
+class UnionFind {
+    static final int EDGE_TOP = 1, EDGE_BOTTOM = 2, EDGE_LEFT = 4, EDGE_RIGHT = 8;
+
+    // which array a trail entry refers to
+    private static final int PARENT = 0, RANK = 1, EDGES = 2;
+
+    private int[] parent;
+    private int[] rank;
+    private int[] edges; // only meaningful for the root of each set
+
+    // pairs of (node * 3 + array, old value)
+    private int[] trail;
+    private int trailSize = 0;
+
+    // copy-on-write: copy() shares all four arrays until either side writes
+    private Sharers sharers = new Sharers();
+
+    UnionFind(int nodes) {
+        parent = new int[nodes];
+        rank = new int[nodes];
+        edges = new int[nodes];
+        trail = new int[16];
+        for (int i = 0; i < nodes; i++)
+            parent[i] = i;
+    }
+
+    // private: used by copy()
+    private UnionFind(UnionFind other) {
+        this.parent = other.parent;
+        this.rank = other.rank;
+        this.edges = other.edges;
+        this.trail = other.trail;
+        this.trailSize = other.trailSize;
+        this.sharers = other.sharers.share();
+    }
+
+    // clone the arrays if they are still shared with a copy
+    // every write goes through log() or rollback(), so both call this first
+    private void own() {
+        if (sharers.isShared()) {
+            parent = parent.clone();
+            rank = rank.clone();
+            edges = edges.clone();
+            trail = trail.clone();
+            sharers.release();
+            sharers = new Sharers();
+        }
+    }
+
+    private void log(int node, int array, int oldValue) {
+        own();
+        if (trailSize + 2 > trail.length)
+            trail = Arrays.copyOf(trail, trail.length * 2);
+        trail[trailSize++] = node * 3 + array;
+        trail[trailSize++] = oldValue;
+    }
+
+    private void setParent(int node, int value) {
+        log(node, PARENT, parent[node]);
+        parent[node] = value;
+    }
+
+    // finds the representative of the set containing node
+    // uses path halving, which keeps the trees flat without recursion
+    int find(int node) {
+        while (parent[node] != node) {
+            if (parent[parent[node]] != parent[node])
+                setParent(node, parent[parent[node]]);
+            node = parent[node];
+        }
+        return node;
+    }
+
+    // merges the sets containing a and b (union by rank)
+    // returns the edges touched by the merged set
+    int union(int a, int b) {
+        int rootA = find(a), rootB = find(b);
+        if (rootA == rootB)
+            return edges[rootA];
+
+        if (rank[rootA] < rank[rootB]) {
+            int tmp = rootA;
+            rootA = rootB;
+            rootB = tmp;
+        }
+        setParent(rootB, rootA);
+        touch(rootA, edges[rootB]);
+        if (rank[rootA] == rank[rootB]) {
+            log(rootA, RANK, rank[rootA]);
+            rank[rootA]++;
+        }
+        return edges[rootA];
+    }
+
+    // marks the set containing node as touching the given EDGE_* flags
+    int touch(int node, int edgeFlags) {
+        int root = find(node);
+        if ((edges[root] | edgeFlags) != edges[root]) {
+            log(root, EDGES, edges[root]);
+            edges[root] |= edgeFlags;
+        }
+        return edges[root];
+    }
+
+    // EDGE_* flags of the set containing node
+    int edges(int node) {
+        return edges[find(node)];
+    }
+
+    // true if the flags include two opposite edges
+    static boolean spansGrid(int edgeFlags) {
+        return (edgeFlags & (EDGE_TOP | EDGE_BOTTOM)) == (EDGE_TOP | EDGE_BOTTOM)
+                || (edgeFlags & (EDGE_LEFT | EDGE_RIGHT)) == (EDGE_LEFT | EDGE_RIGHT);
+    }
+
+    // current position in the trail, to be passed to rollback later
+    int mark() {
+        return trailSize;
+    }
+
+    // undoes every write made since mark() returned the given value
+    void rollback(int mark) {
+        own();
+        while (trailSize > mark) {
+            int oldValue = trail[--trailSize];
+            int slot = trail[--trailSize];
+            int node = slot / 3;
+
+            switch (slot % 3) {
+                case PARENT:
+                    parent[node] = oldValue;
+                    break;
+                case RANK:
+                    rank[node] = oldValue;
+                    break;
+                default:
+                    edges[node] = oldValue;
+            }
+        }
+    }
+
+    // deep copy (lazily - see own())
+    UnionFind copy() {
+        return new UnionFind(this);
+    }
+}
@@ -0,0 +1,55 @@
+package game;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Zobrist hashing for game positions
+// Every (colour, cell) pair gets a random 64-bit key, and a position's hash is
+// the XOR of the keys of every piece on the grid (plus one more key when black
+// is to move). Placing or removing a piece is then a single XOR, which is how
+// GameImpl keeps Game.hashKey() up to date in makeMove/undoMove
+public final class Zobrist {
+    // keys are generated from a fixed seed, so hashes are the same in every run
+    // (and can be stored on disk - see ai.PositionCache)
+    private static final long SEED = 0x2005_C175_6A3EL;
+
+    private static final ConcurrentHashMap<Integer, long[]> KEYS = new ConcurrentHashMap<>();
+
+    // XORed in when black is the current player
+    public static final long BLACK_TO_MOVE = new SplittableRandom(SEED).nextLong();
+
+    private Zobrist() {
+    }
+
+    // keys for a grid of the given size: white pieces at [cell], black pieces at
+    // [size * size + cell], with cell = row * size + col
+    // the returned array is shared and must not be modified
+    public static long[] keys(int size) {
+        return KEYS.computeIfAbsent(size, s -> {
+            var random = new SplittableRandom(SEED ^ s);
+            var keys = new long[2 * s * s];
+            for (int i = 0; i < keys.length; i++)
+                keys[i] = random.nextLong();
+            return keys;
+        });
+    }
+
+    // key for a single piece (colour must be WHITE or BLACK)
+    public static long key(int size, int cell, PieceColour piece) {
+        return keys(size)[piece == PieceColour.WHITE ? cell : size * size + cell];
+    }
+
+    // hash of a whole position computed from scratch
+    // GameImpl.hashKey() always equals hash(getGrid(), currentPlayer())
+    public static long hash(Grid grid, PieceColour toMove) {
+        int size = grid.getSize();
+        long hash = toMove == PieceColour.BLACK ? BLACK_TO_MOVE : 0;
+        for (int row = 0; row < size; row++)
+            for (int col = 0; col < size; col++) {
+                var piece = grid.getPiece(row, col);
+                if (piece != PieceColour.NONE)
+                    hash ^= key(size, row * size + col, piece);
+            }
+        return hash;
+    }
+}
@@ -153,6 +153,42 @@ public class GameTest extends Test {
         copiedMoves = getComparableMoveList(copiedGame.getMoves());
         expect(false, originalMoves.equals(copiedMoves));
 
+        // copying only reads the original, so several threads can copy the same
+        // game at once and play out their copies without touching it (on a
+        // BitGrid and, past BitGrid.MAX_SIZE, a GridImpl)
+        for (int size : new int[] { 8, BitGrid.MAX_SIZE + 1 }) {
+            var shared = new GameImpl(size);
+            for (int[] move : randomMoves)
+                shared.makeMove(new MoveImpl(move[0], move[1]));
+            long sharedKey = shared.hashKey();
+            var threads = new Thread[4];
+            var finished = new boolean[threads.length];
+            for (int t = 0; t < threads.length; t++) {
+                int thread = t;
+                threads[t] = new Thread(() -> {
+                    for (int copies = 0; copies < 20; copies++) {
+                        var copy = shared.copy();
+                        while (!copy.isOver())
+                            copy.makeMove(copy.getMoves().iterator().next());
+                    }
+                    finished[thread] = true;
+                });
+                threads[t].start();
+            }
+            for (var thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            for (boolean done : finished)
+                expect(true, done);
+            expect(sharedKey, shared.hashKey());
+            expect(size * size - randomMoves.length, shared.getMoves().size());
+            expect(PieceColour.NONE, shared.getGrid().getPiece(0, 0));
+        }
+
         // finally, the separation of end states (independent of winner() and isOver())
         // is tested in 8, below
 
@@ -228,6 +264,69 @@ public class GameTest extends Test {
         expect(false, endGameCopy3.isOver());
         expect(PieceColour.NONE, endGameCopy3.winner());
 
+        // 9. test undoing moves - undoMove()
+        System.out.println("---- Testing undo");
+
+        var game6 = new GameImpl(4);
+        expect(true, didThrowException(() -> game6.undoMove())); // nothing to undo yet
+
+        var movesBefore = getComparableMoveList(game6.getMoves());
+        game6.makeMove(new MoveImpl(2, 1));
+        game6.undoMove();
+        expect(PieceColour.NONE, game6.getGrid().getPiece(2, 1));
+        expect(PieceColour.WHITE, game6.currentPlayer());
+        expect(true, movesBefore.equals(getComparableMoveList(game6.getMoves()))); // same moves, same order
+
+        // undo a win, then a draw, back to the position in game4
+        var endGameCopy4 = game4.copy();
+        var game4Moves = getComparableMoveList(game4.getMoves());
+        endGameCopy4.makeMove(new MoveImpl(0, 3)); // white wins
+        expect(PieceColour.WHITE, endGameCopy4.winner());
+        endGameCopy4.undoMove();
+        expect(false, endGameCopy4.isOver());
+        expect(PieceColour.NONE, endGameCopy4.winner());
+        expect(PieceColour.WHITE, endGameCopy4.currentPlayer());
+
+        endGameCopy4.makeMove(new MoveImpl(3, 3));
+        endGameCopy4.makeMove(new MoveImpl(0, 3)); // drawn
+        expect(true, endGameCopy4.isOver());
+        endGameCopy4.undoMove();
+        endGameCopy4.undoMove();
+        expect(false, endGameCopy4.isOver());
+        expect(game4.getGrid().toString(), endGameCopy4.getGrid().toString());
+        expect(true, game4Moves.equals(getComparableMoveList(endGameCopy4.getMoves())));
+
+        // black's winning move can be undone and replayed
+        endGameCopy3.makeMove(new MoveImpl(0, 2));
+        expect(PieceColour.BLACK, endGameCopy3.winner());
+        endGameCopy3.undoMove();
+        expect(PieceColour.NONE, endGameCopy3.winner());
+        expect(PieceColour.BLACK, endGameCopy3.currentPlayer());
+        endGameCopy3.makeMove(new MoveImpl(0, 2));
+        expect(PieceColour.BLACK, endGameCopy3.winner());
+
+        // 10. int-encoded moves - getMoves(IntMoveList), makeMove(int)
+        var intGame = new GameImpl(4);
+        intGame.makeMove(new MoveImpl(1, 2));
+        intGame.makeMove(new MoveImpl(3, 0));
+        var intMoves = new IntMoveList(1); // too small to start with - must grow
+        intGame.getMoves(intMoves);
+        var asMoves = new ArrayList<Move>();
+        for (int i = 0; i < intMoves.size(); i++)
+            asMoves.add(new MoveImpl(intMoves.get(i) / 4, intMoves.get(i) % 4));
+        expect(true, getComparableMoveList(intGame.getMoves()).equals(getComparableMoveList(asMoves)));
+
+        var byObject = intGame.copy();
+        byObject.makeMove(new MoveImpl(2, 1));
+        intGame.makeMove(2 * 4 + 1);
+        expect(byObject.hashKey(), intGame.hashKey());
+        expect(PieceColour.WHITE, intGame.getGrid().getPiece(2, 1));
+        expect(true, didThrowException(() -> intGame.makeMove(2 * 4 + 1))); // occupied
+        expect(true, didThrowException(() -> intGame.makeMove(-1)));
+        expect(true, didThrowException(() -> intGame.makeMove(16)));
+        intGame.getMoves(intMoves); // refilled, not appended to
+        expect(13, intMoves.size());
+
         // --- END OF TESTS
 
         checkAllTestsPassed();
@@ -49,6 +49,28 @@ public class GridTest extends Test {
         }
         expect(true, caught);
 
+        // copies share storage until written, so writes to the original after
+        // copying (and to copies of copies) must not leak either
+        Grid copy2 = copy.copy();
+        copy.setPiece(3, 3, PieceColour.WHITE);
+        expect(PieceColour.NONE, copy2.getPiece(3, 3));
+        copy2.setPiece(1, 2, PieceColour.NONE);
+        expect(PieceColour.BLACK, copy.getPiece(1, 2));
+        grid.setPiece(0, 0, PieceColour.NONE);
+        expect(PieceColour.BLACK, copy.getPiece(0, 0));
+        expect(PieceColour.BLACK, copy2.getPiece(0, 0));
+
+        // bulk reads - copyCells()
+        byte[] cells = new byte[25];
+        copy.copyCells(cells);
+        expect(2, (int) cells[0]); // (0,0) black
+        expect(2, (int) cells[1 * 5 + 2]); // (1,2) black
+        expect(1, (int) cells[3 * 5 + 3]); // (3,3) white
+        for (int row = 0; row < 5; row++)
+            for (int col = 0; col < 5; col++)
+                expect(copy.getPiece(row, col).ordinal(), (int) cells[row * 5 + col]);
+        expect(true, GameTest.didThrowException(() -> copy.copyCells(new byte[24])));
+
         checkAllTestsPassed();
         
 
@@ -25,6 +25,12 @@ public class MoveTest extends Test {
         expect(4, move.getCol());
         expect("(4,4)", move.toString());
 
+        // shared instances
+        expect(true, MoveImpl.of(3, 5) == MoveImpl.of(3, 5));
+        expect("(3,5)", MoveImpl.of(3, 5).toString());
+        expect(true, MoveImpl.ofCell(2 * 7 + 4, 7) == MoveImpl.of(2, 4));
+        expect("(100,1)", MoveImpl.of(100, 1).toString()); // too big to be shared
+
         checkAllTestsPassed();
     }
 }
@@ -0,0 +1,135 @@
+package game.tests;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import game.*;
+
+public class PathFinderTest extends Test {
+    // fills both grids with the same random pieces
+    public static void fillRandom(Random random, Grid a, Grid b) {
+        var colours = PieceColour.values();
+        for (int row = 0; row < a.getSize(); row++)
+            for (int col = 0; col < a.getSize(); col++) {
+                var piece = colours[random.nextInt(colours.length)];
+                a.setPiece(row, col, piece);
+                b.setPiece(row, col, piece);
+            }
+    }
+
+    public static void main(String[] args) {
+        // 1. BitGrid behaves like GridImpl
+        System.out.println("\n---- Testing BitGrid");
+
+        Grid grid = new BitGrid(5);
+        expect(5, grid.getSize());
+        expect(".....\n.....\n.....\n.....\n.....\n", grid.toString());
+        grid.setPiece(2, 1, PieceColour.WHITE);
+        grid.setPiece(0, 4, PieceColour.BLACK);
+        expect(PieceColour.WHITE, grid.getPiece(2, 1));
+        expect(PieceColour.BLACK, grid.getPiece(0, 4));
+        expect("....B\n.....\n.W...\n.....\n.....\n", grid.toString());
+
+        grid.setPiece(2, 1, PieceColour.BLACK); // overwrite
+        expect(PieceColour.BLACK, grid.getPiece(2, 1));
+        grid.setPiece(2, 1, PieceColour.NONE);
+        expect(PieceColour.NONE, grid.getPiece(2, 1));
+
+        Grid copy = grid.copy();
+        copy.setPiece(3, 3, PieceColour.WHITE);
+        expect(PieceColour.NONE, grid.getPiece(3, 3));
+        Grid copy2 = copy.copy();
+        copy.setPiece(3, 3, PieceColour.NONE);
+        expect(PieceColour.WHITE, copy2.getPiece(3, 3));
+
+        expect(true, GameTest.didThrowException(() -> new BitGrid(0)));
+        expect(true, GameTest.didThrowException(() -> new BitGrid(BitGrid.MAX_SIZE + 1)));
+        expect(true, GameTest.didThrowException(() -> copy.getPiece(5, 0)));
+        expect(true, GameTest.didThrowException(() -> copy.copyCells(new byte[10])));
+
+        // copyCells gives the same snapshot as GridImpl, up to the widest BitGrid
+        var random = new Random(2005);
+        int mismatches = 0;
+        for (int size : new int[] { 1, 3, 7, 63, 64 }) {
+            var bits = new BitGrid(size);
+            var slow = new GridImpl(size);
+            fillRandom(random, bits, slow);
+            var bitCells = new byte[size * size];
+            var slowCells = new byte[size * size + 1]; // longer is fine
+            bits.copyCells(bitCells);
+            slow.copyCells(slowCells);
+            for (int cell = 0; cell < size * size; cell++)
+                if (bitCells[cell] != slowCells[cell])
+                    mismatches++;
+        }
+        expect(0, mismatches);
+
+        // 2. bitboard fast path agrees with the BFS over GridImpl
+        System.out.println("\n---- Testing bitboard path finding against BFS");
+
+        mismatches = 0;
+        for (int size : new int[] { 1, 2, 3, 5, 8, 13, 64 }) {
+            for (int i = 0; i < 300; i++) {
+                var bits = new BitGrid(size);
+                var slow = new GridImpl(size);
+                fillRandom(random, bits, slow);
+
+                for (var player : new PieceColour[] { PieceColour.WHITE, PieceColour.BLACK }) {
+                    if (PathFinder.topToBottom(bits, player) != PathFinder.topToBottom(slow, player))
+                        mismatches++;
+                    if (PathFinder.leftToRight(bits, player) != PathFinder.leftToRight(slow, player))
+                        mismatches++;
+                }
+            }
+        }
+        expect(0, mismatches);
+
+        // a winding path which needs several sweeps to find
+        var snake = new BitGrid(5);
+        String[] rows = { "W....", "WWWWW", "....W", "WWW.W", "W.WWW" };
+        for (int row = 0; row < 5; row++)
+            for (int col = 0; col < 5; col++)
+                if (rows[row].charAt(col) == 'W')
+                    snake.setPiece(row, col, PieceColour.WHITE);
+        expect(true, PathFinder.topToBottom(snake, PieceColour.WHITE));
+        expect(true, PathFinder.leftToRight(snake, PieceColour.WHITE));
+        expect(false, PathFinder.topToBottom(snake, PieceColour.BLACK));
+
+        // 3. GameImpl's incremental winner tracking agrees with PathFinder
+        System.out.println("\n---- Testing GameImpl winner against PathFinder");
+
+        mismatches = 0;
+        for (int size : new int[] { 1, 2, 3, 4, 7, 11, 65 }) {
+            for (int i = 0; i < (size > 11 ? 3 : 100); i++) {
+                var game = new GameImpl(size);
+                // play out the whole board, checking after every move (including
+                // after a win, where makeMove still places pieces) and undo
+                while (!game.getMoves().isEmpty()) {
+                    var moves = new ArrayList<>(game.getMoves());
+                    var move = moves.get(random.nextInt(moves.size()));
+                    var before = game.winner();
+
+                    // undoing must restore the winner exactly, then replay the move
+                    game.makeMove(move);
+                    game.undoMove();
+                    if (game.winner() != before)
+                        mismatches++;
+                    game.makeMove(move);
+
+                    var board = game.getGrid();
+                    var expected = PieceColour.NONE;
+                    if (PathFinder.leftToRight(board, PieceColour.WHITE) || PathFinder.topToBottom(board, PieceColour.WHITE))
+                        expected = PieceColour.WHITE;
+                    else if (PathFinder.leftToRight(board, PieceColour.BLACK) || PathFinder.topToBottom(board, PieceColour.BLACK))
+                        expected = PieceColour.BLACK;
+
+                    if (game.winner() != expected)
+                        mismatches++;
+                }
+            }
+        }
+        expect(0, mismatches);
+
+        checkAllTestsPassed();
+    }
+}
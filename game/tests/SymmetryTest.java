@@ -0,0 +1,92 @@
+package game.tests;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import game.*;
+
+public class SymmetryTest extends Test {
+    // applies a symmetry transform to every piece of a grid
+    public static Grid transform(Grid grid, int t) {
+        int size = grid.getSize();
+        Grid result = new GridImpl(size);
+        for (int cell = 0; cell < size * size; cell++) {
+            int to = Symmetry.apply(t, size, cell);
+            result.setPiece(to / size, to % size, grid.getPiece(cell / size, cell % size));
+        }
+        return result;
+    }
+
+    public static void main(String[] args) {
+        // 1. transforms are permutations, and inverse() undoes them
+        System.out.println("\n---- Testing symmetry transforms");
+
+        int bad = 0;
+        for (int size : new int[] { 1, 2, 3, 4, 7 })
+            for (int t = 0; t < Symmetry.COUNT; t++) {
+                var seen = new boolean[size * size];
+                for (int cell = 0; cell < size * size; cell++) {
+                    int to = Symmetry.apply(t, size, cell);
+                    if (seen[to] || Symmetry.apply(Symmetry.inverse(t), size, to) != cell)
+                        bad++;
+                    seen[to] = true;
+                }
+            }
+        expect(0, bad);
+
+        // rotating the top-left corner of a 3x3 grid clockwise lands top-right
+        expect(2, Symmetry.apply(1, 3, 0));
+        expect(8, Symmetry.apply(2, 3, 0));
+
+        // 2. incremental keys in GameImpl match keys computed from scratch,
+        // including after undo, and symmetric positions share a canonical key
+        System.out.println("\n---- Testing incremental and canonical keys");
+
+        var random = new Random(8);
+        int mismatches = 0;
+        for (int size : new int[] { 1, 2, 3, 5, 8 }) {
+            for (int i = 0; i < 20; i++) {
+                var game = new GameImpl(size);
+                while (!game.isOver()) {
+                    var moves = new ArrayList<>(game.getMoves());
+                    var move = moves.get(random.nextInt(moves.size()));
+                    long before = game.hashKey();
+                    game.makeMove(move);
+                    game.undoMove();
+                    if (game.hashKey() != before)
+                        mismatches++;
+                    game.makeMove(move);
+
+                    var grid = game.getGrid();
+                    var toMove = game.currentPlayer();
+                    if (game.hashKey() != Zobrist.hash(grid, toMove))
+                        mismatches++;
+                    if (game.canonicalKey() != Symmetry.canonicalKey(grid, toMove))
+                        mismatches++;
+
+                    // canonicalSymmetry maps the position to the one with the canonical key
+                    if (Zobrist.hash(transform(grid, game.canonicalSymmetry()), toMove) != game.canonicalKey())
+                        mismatches++;
+
+                    for (int t = 0; t < Symmetry.COUNT; t++)
+                        if (Symmetry.canonicalKey(transform(grid, t), toMove) != game.canonicalKey())
+                            mismatches++;
+                }
+            }
+        }
+        expect(0, mismatches);
+
+        // opposite corners are symmetric, but adding a piece gives a new position
+        var white = new GameImpl(3);
+        white.makeMove(new MoveImpl(0, 0));
+        white.makeMove(new MoveImpl(2, 2));
+        var corner = new GameImpl(3);
+        corner.makeMove(new MoveImpl(2, 0));
+        corner.makeMove(new MoveImpl(0, 2));
+        expect(white.canonicalKey(), corner.canonicalKey());
+        corner.makeMove(new MoveImpl(1, 1));
+        expect(false, white.canonicalKey() == corner.canonicalKey());
+
+        checkAllTestsPassed();
+    }
+}